@@ -1,7 +1,12 @@
 package com.ferreusveritas.dynamictrees;
 
 import com.ferreusveritas.dynamictrees.api.TreeRegistry;
+import com.ferreusveritas.dynamictrees.api.WorldGenRegistry;
 import com.ferreusveritas.dynamictrees.cells.CellKits;
+import com.ferreusveritas.dynamictrees.command.CommandBenchmark;
+import com.ferreusveritas.dynamictrees.command.CommandGrowCodes;
+import com.ferreusveritas.dynamictrees.command.CommandPregen;
+import com.ferreusveritas.dynamictrees.command.CommandWorldGenMetrics;
 import com.ferreusveritas.dynamictrees.compat.CommonProxyCompat;
 import com.ferreusveritas.dynamictrees.proxy.CommonProxy;
 import com.ferreusveritas.dynamictrees.tileentity.TileEntitySpecies;
@@ -14,12 +19,16 @@ import net.minecraft.creativetab.CreativeTabs;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.server.MinecraftServer;
 import net.minecraftforge.client.event.ModelRegistryEvent;
 import net.minecraftforge.event.RegistryEvent;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.common.FMLCommonHandler;
 import net.minecraftforge.fml.common.SidedProxy;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLServerStartedEvent;
+import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.registry.GameRegistry;
 import net.minecraftforge.fml.relauncher.Side;
@@ -96,6 +105,26 @@ public class DynamicTrees {
 		compatProxy.init();
 	}
 	
+	@Mod.EventHandler
+	public void serverStarting(FMLServerStartingEvent event) {
+		if(WorldGenRegistry.isWorldGenEnabled()) {
+			event.registerServerCommand(new CommandWorldGenMetrics());
+			event.registerServerCommand(new CommandPregen());
+			event.registerServerCommand(new CommandBenchmark());
+		}
+		event.registerServerCommand(new CommandGrowCodes());
+	}
+	
+	@Mod.EventHandler
+	public void serverStarted(FMLServerStartedEvent event) {
+		String benchmark = System.getProperty(CommandBenchmark.PROPERTY);
+		MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+		if(benchmark != null && server.isDedicatedServer() && WorldGenRegistry.isWorldGenEnabled()) {
+			CommandBenchmark.runAtStartup(server, benchmark);
+			server.initiateShutdown();//The benchmark is all the server was started for
+		}
+	}
+	
 	@Mod.EventBusSubscriber
 	public static class RegistrationHandler {
 		
@@ -18,7 +18,17 @@ public class ModConfigs {
 	public static boolean vineGen;
 	public static boolean podzolGen;
 	public static boolean worldGen;
+	public static int worldGenPresolveRadius;
+	public static int worldGenPresolveBudget;
+	public static int worldGenSolverIterations;
+	public static boolean worldGenTemplates;
+	public static boolean worldGenCircleTiles;
+	public static boolean worldGenParallelExpansion;
+	public static boolean worldGenDeferredLeaves;
+	public static boolean worldGenFitCodes;
 	public static boolean worldGenDebug;
+	public static boolean worldGenMetrics;
+	public static boolean leavesCanopyCulling;
 	
 	public static void preInit(FMLPreInitializationEvent event) {
 		Configuration config = new Configuration(event.getSuggestedConfigurationFile());
@@ -40,8 +50,19 @@ public class ModConfigs {
 		vineGen = config.getBoolean("vineGen", "world", true, "Randomly generate vines on jungle trees.");
 		podzolGen = config.getBoolean("podzolGen", "world", true, "Randomly generate podzol under select trees.");
 		worldGen = config.getBoolean("worldGen", "world", true, "World Generation produces Dynamic Trees instead of Vanilla trees.");
+		worldGenPresolveRadius = config.getInt("presolveRadius", "world", 0, 0, 16, "Number of chunks beyond the view distance around each player to solve tree placement for ahead of time. 0 disables pre-solving.");
+		worldGenSolverIterations = config.getInt("solverIterations", "world", 64, 16, 1024, "Maximum iterations spent packing tree placement circles into a chunk before settling for what has been solved.");
+		worldGenTemplates = config.getBoolean("treeTemplates", "world", true, "Paste trees from templates simulated once for each tree code and direction instead of simulating every tree. Trees that collide with terrain are always simulated.");
+		worldGenParallelExpansion = config.getBoolean("parallelExpansion", "world", true, "Expand the trees of each chunk into off-world buffers on all cores before they are written to the world. Only the collision checks and the writes are done on the world generation thread.");
+		worldGenDeferredLeaves = config.getBoolean("deferredLeaves", "world", true, "Leaves of worldgen trees that reach into chunks that haven't been generated yet are saved and placed once those chunks are generated instead of being clipped off.");
+		worldGenFitCodes = config.getBoolean("fitTreeCodes", "world", true, "Pick tree shapes that fit under overhangs and inside of the generated chunks at each spot instead of picking any shape for the radius and clipping it.");
+		worldGenCircleTiles = config.getBoolean("circleTiles", "world", false, "Lay tree placement circles down from a library of precomputed tiles instead of solving them for every chunk. Much faster but the packing is a little less dense.");
+		worldGenPresolveBudget = config.getInt("presolveBudget", "world", 4, 1, 50, "Milliseconds of each server tick that may be spent solving tree placement ahead of time.");
+		
+		leavesCanopyCulling = config.getBoolean("leavesCanopyCulling", "client", true, "With fancy graphics only the outer shell of a canopy is rendered. Faces between leaves deep inside of a canopy are culled.");
 		
 		worldGenDebug = config.getBoolean("worldGenDebug", "debug", false, "Enable to mark tree spawn locations with wool circles.");
+		worldGenMetrics = config.getBoolean("worldGenMetrics", "debug", false, "Enable to collect tree generation outcomes and timings from startup. Can also be toggled with the dtmetrics command.");
 		
 		config.save();
 	}
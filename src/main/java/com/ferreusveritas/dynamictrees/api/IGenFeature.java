@@ -1,6 +1,7 @@
 package com.ferreusveritas.dynamictrees.api;
 
 import java.util.List;
+import java.util.Random;
 
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
@@ -9,4 +10,17 @@ public interface IGenFeature {
 
 	public void gen(World world, BlockPos treePos, List<BlockPos> endPoints);
 	
+	/**
+	 * Features that override this should also override {@link #gen(World, BlockPos, List)} to call it with the
+	 * world's random.
+	 * 
+	 * @param world The world
+	 * @param treePos The position of the base of the trunk
+	 * @param endPoints The branch end points of the tree
+	 * @param random The random number generator.  During worldgen this is a stream dedicated to the tree.
+	 */
+	public default void gen(World world, BlockPos treePos, List<BlockPos> endPoints, Random random) {
+		gen(world, treePos, endPoints);
+	}
+	
 }
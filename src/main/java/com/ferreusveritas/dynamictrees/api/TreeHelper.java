@@ -1,6 +1,7 @@
 package com.ferreusveritas.dynamictrees.api;
 
 import java.util.HashMap;
+import java.util.Random;
 
 import com.ferreusveritas.dynamictrees.api.network.MapSignal;
 import com.ferreusveritas.dynamictrees.api.treedata.ITreePart;
@@ -8,6 +9,7 @@ import com.ferreusveritas.dynamictrees.blocks.BlockBranch;
 import com.ferreusveritas.dynamictrees.blocks.BlockDynamicLeaves;
 import com.ferreusveritas.dynamictrees.blocks.BlockRootyDirt;
 import com.ferreusveritas.dynamictrees.blocks.NullTreePart;
+import com.ferreusveritas.dynamictrees.systems.LeavesRemovalBatch;
 import com.ferreusveritas.dynamictrees.systems.nodemappers.NodeTwinkle;
 import com.ferreusveritas.dynamictrees.util.SimpleVoxmap;
 
@@ -84,16 +86,30 @@ public class TreeHelper {
 	 * @param height The height of the cuboid volume
 	 */
 	public static void ageVolume(World world, BlockPos treePos, int halfWidth, int height, SimpleVoxmap leafMap, int iterations){
+		ageVolume(world, treePos, halfWidth, height, leafMap, iterations, world.rand);
+	}
+	
+	/**
+	 * Same as {@link #ageVolume(World, BlockPos, int, int, SimpleVoxmap, int)} but draws from the given random
+	 * number generator so worldgen comes out the same no matter what else the world is doing.
+	 */
+	public static void ageVolume(World world, BlockPos treePos, int halfWidth, int height, SimpleVoxmap leafMap, int iterations, Random random){
 		
 		Iterable<BlockPos> iterable = leafMap != null ? leafMap.getAllNonZero((byte) 0x0F) : 
 			BlockPos.getAllInBox(treePos.add(new BlockPos(-halfWidth, 0, -halfWidth)), treePos.add(new BlockPos(halfWidth, height, halfWidth)));
 		
+		//Dying leaves are gathered into a batch so the neighbors are only notified once after the whole volume is aged
+		LeavesRemovalBatch leavesBatch = new LeavesRemovalBatch(world);
+		
 		for(int i = 0; i < iterations; i++) {
 			for(BlockPos iPos: iterable) {
 				IBlockState blockState = world.getBlockState(iPos);
 				Block block = blockState.getBlock();
 				if(block instanceof IAgeable) {
-					if(((IAgeable)block).age(world, iPos, blockState, world.rand, true)) {
+					boolean destroyed = block instanceof BlockDynamicLeaves ?
+						((BlockDynamicLeaves)block).age(world, iPos, blockState, random, true, leavesBatch) :
+						((IAgeable)block).age(world, iPos, blockState, random, true);
+					if(destroyed) {
 						if(leafMap != null) {
 							leafMap.setVoxel(iPos, (byte) 0);
 						}
@@ -102,6 +118,7 @@ public class TreeHelper {
 			}
 		}
 		
+		leavesBatch.flush();
 	}
 	
 	public static void treeParticles(World world, BlockPos rootPos, EnumParticleTypes type, int num) {
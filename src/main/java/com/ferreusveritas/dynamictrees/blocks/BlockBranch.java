@@ -12,6 +12,8 @@ import com.ferreusveritas.dynamictrees.api.network.IBurningListener;
 import com.ferreusveritas.dynamictrees.api.network.MapSignal;
 import com.ferreusveritas.dynamictrees.api.treedata.ITreePart;
 import com.ferreusveritas.dynamictrees.systems.GrowSignal;
+import com.ferreusveritas.dynamictrees.systems.LeavesRemovalBatch;
+import com.ferreusveritas.dynamictrees.systems.LeavesSpeciesCache;
 import com.ferreusveritas.dynamictrees.systems.nodemappers.NodeDestroyer;
 import com.ferreusveritas.dynamictrees.systems.nodemappers.NodeNetVolume;
 import com.ferreusveritas.dynamictrees.trees.DynamicTree;
@@ -458,8 +460,10 @@ public class BlockBranch extends Block implements ITreePart, IBurningListener {
 		MapSignal signal = analyse(world, pos, null, new MapSignal());// Analyze entire tree network to find root node
 		Species species = getSpeciesFromSignal(world, signal);//Get the species from the root node
 		NodeNetVolume volumeSum = new NodeNetVolume();
+		LeavesRemovalBatch leavesBatch = new LeavesRemovalBatch(world);
 		// Analyze only part of the tree beyond the break point and calculate it's volume
-		analyse(world, pos, signal.localRootDir, new MapSignal(volumeSum, new NodeDestroyer(species)));
+		analyse(world, pos, signal.localRootDir, new MapSignal(volumeSum, new NodeDestroyer(species, leavesBatch)));
+		leavesBatch.flush();// Notify the neighbors of the felled canopy all at once
 		return volumeSum.getVolume();// Drop an amount of wood calculated from the body of the tree network
 	}
 	
@@ -467,8 +471,10 @@ public class BlockBranch extends Block implements ITreePart, IBurningListener {
 		MapSignal signal = analyse(world, pos, null, new MapSignal());// Analyze entire tree network to find root node
 		Species species = getSpeciesFromSignal(world, signal);//Get the species from the root node
 		NodeNetVolume volumeSum = new NodeNetVolume();
+		LeavesRemovalBatch leavesBatch = new LeavesRemovalBatch(world);
 		// Analyze the entire tree and calculate it's volume
-		analyse(world, pos, null, new MapSignal(volumeSum, new NodeDestroyer(species)));
+		analyse(world, pos, null, new MapSignal(volumeSum, new NodeDestroyer(species, leavesBatch)));
+		leavesBatch.flush();// Notify the neighbors of the felled canopy all at once
 		return volumeSum.getVolume();// Drop an amount of wood calculated from the body of the tree network
 	}
 	
@@ -588,7 +594,9 @@ public class BlockBranch extends Block implements ITreePart, IBurningListener {
 				if(TreeHelper.isBranch(world, neighPos)) {
 					BlockPos rootPos = DynamicTree.findRootNode(world, neighPos);
 					if(rootPos == null) {
-						analyse(world, neighPos, null, new MapSignal(new NodeDestroyer(getTree().getCommonSpecies())));
+						LeavesRemovalBatch leavesBatch = new LeavesRemovalBatch(world);
+						analyse(world, neighPos, null, new MapSignal(new NodeDestroyer(getTree().getCommonSpecies(), leavesBatch)));
+						leavesBatch.flush();
 					}
 				}
 			}
@@ -596,6 +604,13 @@ public class BlockBranch extends Block implements ITreePart, IBurningListener {
 		
 	}
 	
+	// Removing a branch may disconnect leaf clusters from their root node so they can't be trusted anymore.
+	@Override
+	public void breakBlock(World world, BlockPos pos, IBlockState state) {
+		LeavesSpeciesCache.getCache(world).invalidate(pos, getRadius(state));
+		super.breakBlock(world, pos, state);
+	}
+	
 	@Override
 	public void neighborChanged(IBlockState state, World world, BlockPos pos, Block blockIn, BlockPos neighbor) {		
 		IBlockState neighBlockState = world.getBlockState(neighbor);
@@ -13,6 +13,8 @@ import com.ferreusveritas.dynamictrees.api.cells.ICell;
 import com.ferreusveritas.dynamictrees.api.network.MapSignal;
 import com.ferreusveritas.dynamictrees.api.treedata.ITreePart;
 import com.ferreusveritas.dynamictrees.systems.GrowSignal;
+import com.ferreusveritas.dynamictrees.systems.LeavesRemovalBatch;
+import com.ferreusveritas.dynamictrees.systems.LeavesSpeciesCache;
 import com.ferreusveritas.dynamictrees.trees.DynamicTree;
 import com.ferreusveritas.dynamictrees.trees.Species;
 import com.ferreusveritas.dynamictrees.util.MathHelper;
@@ -117,18 +119,31 @@ public class BlockDynamicLeaves extends BlockLeaves implements ITreePart, IAgeab
 	
 	@Override
 	public boolean age(World world, BlockPos pos, IBlockState state, Random rand, boolean rapid) {
+		LeavesRemovalBatch batch = new LeavesRemovalBatch(world);
+		boolean destroyed = age(world, pos, state, rand, rapid, batch);
+		batch.flush();
+		return destroyed;
+	}
+	
+	/**
+	 * Ages the leaves block.  If the leaves die they are removed as part of the batch and the neighbors
+	 * are not notified until the batch is flushed by the caller.
+	 * 
+	 * @return true if the leaves were destroyed after the ageing, false otherwise
+	 */
+	public boolean age(World world, BlockPos pos, IBlockState state, Random rand, boolean rapid, LeavesRemovalBatch batch) {
 		DynamicTree tree = getTree(state);
 		int preHydro = getHydrationLevel(state);
 		
 		//Check hydration level.  Dry leaves are dead leaves.
 		int hydro = getHydrationLevelFromNeighbors(world, pos, tree);
 		if(hydro == 0 || (!rapid && !hasAdequateLight(world, tree, pos))) { //Light doesn't work right during worldgen so we'll just disable it during worldgen for now.
-			removeLeaves(world, pos);//No water, no light .. no leaves
+			batch.remove(pos);//No water, no light .. no leaves
 			return true;//Leaves were destroyed
 		} else { 
 			//Encode new hydration level in metadata for this leaf
 			if(preHydro != hydro) {//A little performance gain
-				if(setHydrationLevel(world, pos, hydro, state)) {
+				if(setHydrationLevel(world, pos, hydro, state, batch)) {
 					return true;//Leaves were destroyed
 				}
 			}
@@ -406,17 +421,26 @@ public class BlockDynamicLeaves extends BlockLeaves implements ITreePart, IAgeab
 		}
 	}
 	
+	/** Removes a single leaves block.  Use a {@link LeavesRemovalBatch} when removing many leaves at once. */
 	public static void removeLeaves(World world, BlockPos pos) {
-		world.setBlockToAir(pos);
-		world.notifyNeighborsOfStateChange(pos, Blocks.AIR, false); //TODO: Does this affect performance and is it necessary?
+		LeavesRemovalBatch batch = new LeavesRemovalBatch(world);
+		batch.remove(pos);
+		batch.flush();//A batch of one still notifies the neighbors only once
 	}
 	
 	//Variable hydration levels are only appropriate for leaf blocks
 	public static boolean setHydrationLevel(World world, BlockPos pos, int hydro, IBlockState currentBlockState) {
+		LeavesRemovalBatch batch = new LeavesRemovalBatch(world);
+		boolean destroyed = setHydrationLevel(world, pos, hydro, currentBlockState, batch);
+		batch.flush();
+		return destroyed;
+	}
+	
+	public static boolean setHydrationLevel(World world, BlockPos pos, int hydro, IBlockState currentBlockState, LeavesRemovalBatch batch) {
 		hydro = MathHelper.clamp(hydro, 0, 4);
 		
 		if(hydro == 0) {
-			removeLeaves(world, pos);
+			batch.remove(pos);
 			return true;
 		} else {
 			//We do not use the 0x02 flag(update client) for performance reasons.  The clients do not need to know the hydration level of the leaves blocks as it
@@ -489,6 +513,7 @@ public class BlockDynamicLeaves extends BlockLeaves implements ITreePart, IAgeab
 		if(hasLeaves) {
 			//Finally set the leaves block to a branch
 			world.setBlockState(pos, tree.getDynamicBranch().getDefaultState(), 2);
+			LeavesSpeciesCache.getCache(world).put(pos, signal.rootPos);//The new twig is the center of a new leaf cluster
 			signal.radius = signal.getSpecies().getSecondaryThickness();//For the benefit of the parent branch
 		}
 		
@@ -554,7 +579,20 @@ public class BlockDynamicLeaves extends BlockLeaves implements ITreePart, IAgeab
 					}
 				}
 				
-				return DynamicTree.getExactSpecies(world, closest);
+				//Try the cache before mapping the whole branch network
+				LeavesSpeciesCache cache = LeavesSpeciesCache.getCache(world);
+				Species species = cache.getSpecies(world, closest);
+				if(species != null) {
+					return species;
+				}
+				
+				BlockPos rootPos = DynamicTree.findRootNode(world, closest);
+				if(rootPos != null) {
+					cache.put(closest, rootPos);
+					return TreeHelper.getRootyDirt(world, rootPos).getSpecies(world, rootPos);
+				}
+				
+				return Species.NULLSPECIES;
 			}
 		}
 		
@@ -670,7 +708,38 @@ public class BlockDynamicLeaves extends BlockLeaves implements ITreePart, IAgeab
     @SideOnly(Side.CLIENT)
     public boolean shouldSideBeRendered(IBlockState blockState, IBlockAccess blockAccess, BlockPos pos, EnumFacing side) {
     	setGraphicsLevel(Minecraft.isFancyGraphicsEnabled());
+    	if(leavesFancy && ModConfigs.leavesCanopyCulling && isCanopyInterior(blockState, blockAccess, pos.offset(side))) {
+    		return false;//Nobody can see this face through the outer shell of the canopy
+    	}
 		return super.shouldSideBeRendered(blockState, blockAccess, pos, side); 
 	}
     
+    /**
+     * A leaves block of the same tree that is boxed in on all sides by it's own leaves or branches is buried in the
+     * canopy.  The face that looks into it can only be seen through the outer shell so it's left out.  Only the
+     * tree and the neighbors are considered since the client doesn't know the hydration of leaves.
+     * 
+     * @param blockState The state of this leaves block
+     * @param blockAccess The world
+     * @param neighPos The position of the neighboring block
+     * @return true if the face between the two blocks is deep inside of a canopy
+     */
+    @SideOnly(Side.CLIENT)
+    public boolean isCanopyInterior(IBlockState blockState, IBlockAccess blockAccess, BlockPos neighPos) {
+    	IBlockState neighState = blockAccess.getBlockState(neighPos);
+    	if(neighState.getBlock() != this || neighState.getValue(TREE) != blockState.getValue(TREE)) {
+    		return false;
+    	}
+    	
+    	for(EnumFacing dir: EnumFacing.VALUES) {
+    		IBlockState state = blockAccess.getBlockState(neighPos.offset(dir));
+    		boolean sameLeaves = state.getBlock() == this && state.getValue(TREE) == blockState.getValue(TREE);
+    		if(!sameLeaves && !TreeHelper.isBranch(state)) {
+    			return false;
+    		}
+    	}
+    	
+    	return true;
+    }
+    
 }
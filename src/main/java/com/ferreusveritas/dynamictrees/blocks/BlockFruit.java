@@ -2,6 +2,8 @@ package com.ferreusveritas.dynamictrees.blocks;
 
 import java.util.Random;
 
+import com.ferreusveritas.dynamictrees.systems.FruitLedger;
+
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockLeaves;
 import net.minecraft.block.IGrowable;
@@ -41,9 +43,43 @@ public class BlockFruit extends Block implements IGrowable {
 		this.setDefaultState(this.blockState.getBaseState().withProperty(AGE, Integer.valueOf(0)));
 		setRegistryName(name);
 		setUnlocalizedName(name);
-		this.setTickRandomly(true);
+		setTickRandomly(true);//Only as a fallback for fruit that has no ripening scheduled
 	}
-
+	
+	/**
+	 * The number of ticks it takes for fruit to advance one stage of ripeness.  Averages out to about the same
+	 * rate as a random tick with a 1 in 5 chance of growing.
+	 * 
+	 * @param rand
+	 * @return ticks until the next stage
+	 */
+	public static int getRipeningTicks(Random rand) {
+		return 4096 + rand.nextInt(5461);
+	}
+	
+	//Fruit ripens through scheduled updates instead of random ticks
+	@Override
+	public void onBlockAdded(World world, BlockPos pos, IBlockState state) {
+		if(state.getValue(AGE) < 3) {
+			scheduleRipening(world, pos);
+		}
+	}
+	
+	/**
+	 * Fruit from worlds that predate scheduled ripening or that lost it's scheduled update never ripens
+	 * otherwise.  Random ticks are rare enough that this costs next to nothing.
+	 */
+	@Override
+	public void randomTick(World world, BlockPos pos, IBlockState state, Random random) {
+		if(state.getValue(AGE) < 3 && !world.isUpdateScheduled(pos, this)) {
+			scheduleRipening(world, pos);
+		}
+	}
+	
+	protected void scheduleRipening(World world, BlockPos pos) {
+		world.scheduleUpdate(pos, this, getRipeningTicks(world.rand));
+	}
+	
 	public void updateTick(World worldIn, BlockPos pos, IBlockState state, Random rand) {
 		if (!this.canBlockStay(worldIn, pos, state)) {
 			this.dropBlock(worldIn, pos, state);
@@ -51,13 +87,24 @@ public class BlockFruit extends Block implements IGrowable {
 		else {
 			int age = state.getValue(AGE);
 
-			if (age < 3 && net.minecraftforge.common.ForgeHooks.onCropsGrowPre(worldIn, pos, state, rand.nextInt(5) == 0)) {
-				worldIn.setBlockState(pos, state.withProperty(AGE, age + 1), 2);
-				net.minecraftforge.common.ForgeHooks.onCropsGrowPost(worldIn, pos, state, worldIn.getBlockState(pos));
+			if (age < 3) {
+				if(net.minecraftforge.common.ForgeHooks.onCropsGrowPre(worldIn, pos, state, true)) {
+					worldIn.setBlockState(pos, state.withProperty(AGE, ++age), 2);
+					net.minecraftforge.common.ForgeHooks.onCropsGrowPost(worldIn, pos, state, worldIn.getBlockState(pos));
+				}
+				if(age < 3) {
+					scheduleRipening(worldIn, pos);
+				}
 			}
 		}
 	}
 	
+	@Override
+	public void breakBlock(World world, BlockPos pos, IBlockState state) {
+		FruitLedger.get(world).removeFruit(pos);
+		super.breakBlock(world, pos, state);
+	}
+	
     public void neighborChanged(IBlockState state, World worldIn, BlockPos pos, Block blockIn, BlockPos fromPos) {
         if (!this.canBlockStay(worldIn, pos, state)) {
             this.dropBlock(worldIn, pos, state);
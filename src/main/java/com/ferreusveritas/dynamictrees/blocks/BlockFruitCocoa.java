@@ -1,11 +1,14 @@
 package com.ferreusveritas.dynamictrees.blocks;
 
+import java.util.Random;
+
 import com.ferreusveritas.dynamictrees.api.TreeHelper;
 
 import net.minecraft.block.BlockCocoa;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
+import net.minecraftforge.common.ForgeHooks;
 
 public class BlockFruitCocoa extends BlockCocoa {
 	
@@ -19,6 +22,43 @@ public class BlockFruitCocoa extends BlockCocoa {
 		setRegistryName(name);
 	}
 	
+	/**
+	 * Pods ripen through scheduled updates.  Random ticks only reschedule the ripening of pods that have lost it.
+	 */
+	@Override
+	public void randomTick(World world, BlockPos pos, IBlockState state, Random random) {
+		if(state.getValue(AGE) < 2 && !world.isUpdateScheduled(pos, this)) {
+			world.scheduleUpdate(pos, this, BlockFruit.getRipeningTicks(random));
+		}
+	}
+	
+	@Override
+	public void onBlockAdded(World world, BlockPos pos, IBlockState state) {
+		if(state.getValue(AGE) < 2) {
+			world.scheduleUpdate(pos, this, BlockFruit.getRipeningTicks(world.rand));
+		}
+	}
+	
+	@Override
+	public void updateTick(World world, BlockPos pos, IBlockState state, Random rand) {
+		if(!canBlockStay(world, pos, state)) {
+			super.updateTick(world, pos, state, rand);//Drops the pod
+			return;
+		}
+		
+		int age = state.getValue(AGE);
+		
+		if(age < 2) {
+			if(ForgeHooks.onCropsGrowPre(world, pos, state, true)) {
+				world.setBlockState(pos, state.withProperty(AGE, ++age), 2);
+				ForgeHooks.onCropsGrowPost(world, pos, state, world.getBlockState(pos));
+			}
+			if(age < 2) {
+				world.scheduleUpdate(pos, this, BlockFruit.getRipeningTicks(rand));
+			}
+		}
+	}
+	
 	/**
 	* Can this block stay at this position.  Similar to canPlaceBlockAt except gets checked often with plants.
 	*/
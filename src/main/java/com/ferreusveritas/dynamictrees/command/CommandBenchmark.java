@@ -0,0 +1,125 @@
+package com.ferreusveritas.dynamictrees.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import com.ferreusveritas.dynamictrees.worldgen.SyntheticWorld.Terrain;
+import com.ferreusveritas.dynamictrees.worldgen.WorldGenBenchmark;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.init.Biomes;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.world.biome.Biome;
+
+/**
+ * Runs a {@link WorldGenBenchmark}.  The benchmark runs on the server thread just like real worldgen so the
+ * server is unresponsive until it's done.
+ *
+ * /dtbenchmark [width] [flat|noise] [biome] [seed]
+ *
+ * A dedicated server started with -Ddynamictrees.benchmark="[width] [flat|noise] [biome] [seed]" runs the
+ * benchmark as soon as it has started and then shuts down.  Only that run starts with cold code caches since
+ * dropping them on a live server would slow down it's own worldgen.
+ *
+ * @author ferreusveritas
+ */
+public class CommandBenchmark extends CommandBase {
+
+	public static final String PROPERTY = "dynamictrees.benchmark";
+	public static final String USAGE = "/dtbenchmark [width] [flat|noise] [biome] [seed]";
+
+	@Override
+	public String getName() {
+		return "dtbenchmark";
+	}
+
+	@Override
+	public String getUsage(ICommandSender sender) {
+		return USAGE;
+	}
+
+	@Override
+	public int getRequiredPermissionLevel() {
+		return 2;
+	}
+
+	@Override
+	public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
+		run(server, sender, parse(args, false));
+	}
+
+	/**
+	 * Runs the benchmark given by the {@link #PROPERTY} system property with cold caches.  The results go to the
+	 * server log.
+	 */
+	public static void runAtStartup(MinecraftServer server, String args) {
+		try {
+			run(server, server, parse(args.trim().isEmpty() ? new String[0] : args.trim().split("\\s+"), true));
+		} catch (CommandException e) {
+			server.sendMessage(new TextComponentString("Benchmark not run: " + e.getMessage()));
+		}
+	}
+
+	private static WorldGenBenchmark parse(String[] args, boolean coldCaches) throws CommandException {
+		int width = args.length > 0 ? parseInt(args[0], 1, 256) : 32;
+
+		Terrain terrain = Terrain.FLAT;
+		if(args.length > 1) {
+			switch(args[1]) {
+			case "flat":
+				terrain = Terrain.FLAT;
+				break;
+			case "noise":
+				terrain = Terrain.NOISE;
+				break;
+			default:
+				throw new WrongUsageException(USAGE);
+			}
+		}
+
+		Biome biome = Biomes.FOREST;
+		if(args.length > 2) {
+			biome = Biome.REGISTRY.getObject(new ResourceLocation(args[2]));
+			if(biome == null) {
+				throw new CommandException("Unknown biome: " + args[2]);
+			}
+		}
+
+		long seed = args.length > 3 ? parseLong(args[3]) : WorldGenBenchmark.DEFAULT_SEED;
+
+		return new WorldGenBenchmark(width, terrain, biome, seed, coldCaches);
+	}
+
+	private static void run(MinecraftServer server, ICommandSender sender, WorldGenBenchmark benchmark) throws CommandException {
+		sender.sendMessage(new TextComponentString("Benchmarking worldgen of " + (benchmark.getWidth() * benchmark.getWidth()) + " chunks"));
+
+		File directory = new File(server.getDataDirectory(), "dynamictrees-benchmark");
+		try {
+			for(String line : benchmark.run(directory)) {
+				sender.sendMessage(new TextComponentString(line));
+			}
+		} catch (IOException e) {
+			throw new CommandException("Unable to set up the benchmark world in " + directory + ": " + e.getMessage());
+		}
+	}
+
+	@Override
+	public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, BlockPos targetPos) {
+		if(args.length == 2) {
+			return getListOfStringsMatchingLastWord(args, "flat", "noise");
+		}
+		if(args.length == 3) {
+			return getListOfStringsMatchingLastWord(args, Biome.REGISTRY.getKeys());
+		}
+		return Collections.emptyList();
+	}
+
+}
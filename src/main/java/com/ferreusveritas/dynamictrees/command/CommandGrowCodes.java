@@ -0,0 +1,131 @@
+package com.ferreusveritas.dynamictrees.command;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.List;
+
+import com.ferreusveritas.dynamictrees.api.TreeRegistry;
+import com.ferreusveritas.dynamictrees.trees.Species;
+import com.ferreusveritas.dynamictrees.worldgen.GrowthEngine;
+import com.ferreusveritas.dynamictrees.worldgen.GrowthEngine.GrownTree;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.init.Biomes;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.world.biome.Biome;
+
+/**
+ * Grows tree codes off-world with a {@link GrowthEngine}.  The trees are grown on a background thread using all
+ * of the cores.  The new codes are added to the species' code store so worldgen uses them right away and are
+ * appended to a file in the same format as the tree code files.
+ *
+ * /dtgrow &lt;species&gt; &lt;radius&gt; &lt;count&gt; [biome]
+ *
+ * @author ferreusveritas
+ */
+public class CommandGrowCodes extends CommandBase {
+
+	private volatile boolean running = false;
+
+	@Override
+	public String getName() {
+		return "dtgrow";
+	}
+
+	@Override
+	public String getUsage(ICommandSender sender) {
+		return "/dtgrow <species> <radius> <count> [biome]";
+	}
+
+	@Override
+	public int getRequiredPermissionLevel() {
+		return 2;
+	}
+
+	@Override
+	public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
+		if(args.length < 3) {
+			throw new WrongUsageException(getUsage(sender));
+		}
+
+		Species species = TreeRegistry.findSpeciesSloppy(args[0]);
+		if(species == Species.NULLSPECIES) {
+			throw new CommandException("Unknown species: " + args[0]);
+		}
+
+		int radius = parseInt(args[1], 2, 8);
+		int count = parseInt(args[2], 1, 100000);
+
+		Biome biome = Biomes.PLAINS;
+		if(args.length > 3) {
+			biome = Biome.REGISTRY.getObject(new ResourceLocation(args[3]));
+			if(biome == null) {
+				throw new CommandException("Unknown biome: " + args[3]);
+			}
+		}
+
+		if(running) {
+			throw new CommandException("Trees are already being grown");
+		}
+		running = true;
+
+		File file = new File(server.getDataDirectory(), "dynamictrees-grown/" + species.getRegistryName().getResourcePath() + ".txt");
+		GrowthEngine engine = new GrowthEngine(species, biome);
+		long seed = server.getWorld(0).rand.nextLong();
+
+		sender.sendMessage(new TextComponentString("Growing " + count + " " + species + " trees with a radius of " + radius));
+
+		Thread thread = new Thread(() -> {
+			try {
+				long start = System.nanoTime();
+				List<GrownTree> trees = engine.growMany(seed, count, radius);
+				double seconds = (System.nanoTime() - start) / 1000000000.0;
+
+				write(file, trees);
+
+				server.addScheduledTask(() -> {
+					for(GrownTree tree : trees) {
+						species.getJoCodeStore().addCode(tree.radius, tree.code.toString());
+					}
+					sender.sendMessage(new TextComponentString(String.format("Grew %d unique trees in %.1fs(%.0f trees/minute). Written to %s", trees.size(), seconds, count * 60 / seconds, file)));
+				});
+			} catch (IOException e) {
+				server.addScheduledTask(() -> sender.sendMessage(new TextComponentString("Unable to write grown trees to " + file + ": " + e.getMessage())));
+			} finally {
+				running = false;
+			}
+		}, "DynamicTrees Growth");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private static void write(File file, List<GrownTree> trees) throws IOException {
+		file.getParentFile().mkdirs();
+		try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+			for(GrownTree tree : trees) {
+				out.println(tree.radius + ":" + tree.code);
+			}
+		}
+	}
+
+	@Override
+	public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, BlockPos targetPos) {
+		if(args.length == 1) {
+			return getListOfStringsMatchingLastWord(args, TreeRegistry.getSpeciesDirectory());
+		}
+		if(args.length == 4) {
+			return getListOfStringsMatchingLastWord(args, Biome.REGISTRY.getKeys());
+		}
+		return Collections.emptyList();
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.ferreusveritas.dynamictrees.command;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.ferreusveritas.dynamictrees.worldgen.PregenTask;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.world.World;
+
+/**
+ * Pre-generates and populates an area of the overworld with a {@link PregenTask}.
+ * 
+ * /dtpregen start &lt;x1&gt; &lt;z1&gt; &lt;x2&gt; &lt;z2&gt; [msPerTick]
+ * /dtpregen pause|resume|status
+ * 
+ * Coordinates are block coordinates.
+ * 
+ * @author ferreusveritas
+ */
+public class CommandPregen extends CommandBase {
+	
+	@Override
+	public String getName() {
+		return "dtpregen";
+	}
+	
+	@Override
+	public String getUsage(ICommandSender sender) {
+		return "/dtpregen <start <x1> <z1> <x2> <z2> [msPerTick]|pause|resume|status>";
+	}
+	
+	@Override
+	public int getRequiredPermissionLevel() {
+		return 2;
+	}
+	
+	@Override
+	public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
+		if(args.length < 1) {
+			throw new WrongUsageException(getUsage(sender));
+		}
+		
+		World world = server.getWorld(0);
+		PregenTask task = PregenTask.get(world);
+		
+		switch(args[0]) {
+		case "start":
+			if(args.length < 5) {
+				throw new WrongUsageException(getUsage(sender));
+			}
+			BlockPos pos = sender.getPosition();
+			int x1 = MathHelper.floor(parseDouble(pos.getX(), args[1], false)) >> 4;
+			int z1 = MathHelper.floor(parseDouble(pos.getZ(), args[2], false)) >> 4;
+			int x2 = MathHelper.floor(parseDouble(pos.getX(), args[3], false)) >> 4;
+			int z2 = MathHelper.floor(parseDouble(pos.getZ(), args[4], false)) >> 4;
+			int budget = args.length > 5 ? parseInt(args[5], 1, 1000) : 40;
+			task.start(x1, z1, x2, z2, budget);
+			sender.sendMessage(new TextComponentString("Pregenerating " + task.getTotal() + " chunks"));
+			break;
+		case "pause":
+			task.setRunning(false);
+			sender.sendMessage(new TextComponentString(task.getStatus()));
+			break;
+		case "resume":
+			task.setRunning(true);
+			sender.sendMessage(new TextComponentString(task.getStatus()));
+			break;
+		case "status":
+			sender.sendMessage(new TextComponentString(task.getStatus()));
+			break;
+		default:
+			throw new WrongUsageException(getUsage(sender));
+		}
+	}
+	
+	@Override
+	public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, BlockPos targetPos) {
+		if(args.length == 1) {
+			return getListOfStringsMatchingLastWord(args, "start", "pause", "resume", "status");
+		}
+		if(args.length >= 2 && args.length <= 5 && args[0].equals("start")) {
+			return getTabCompletionCoordinateXZ(args, 1, targetPos);
+		}
+		return Collections.emptyList();
+	}
+	
+}
@@ -0,0 +1,91 @@
+package com.ferreusveritas.dynamictrees.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import com.ferreusveritas.dynamictrees.worldgen.WorldGenMetrics;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+
+/**
+ * Shows, resets and exports the {@link WorldGenMetrics}.
+ * 
+ * /dtmetrics show [limit]
+ * /dtmetrics start|stop|reset
+ * /dtmetrics export [filename]
+ * 
+ * @author ferreusveritas
+ */
+public class CommandWorldGenMetrics extends CommandBase {
+	
+	@Override
+	public String getName() {
+		return "dtmetrics";
+	}
+	
+	@Override
+	public String getUsage(ICommandSender sender) {
+		return "/dtmetrics <show [limit]|start|stop|reset|export [filename]>";
+	}
+	
+	@Override
+	public int getRequiredPermissionLevel() {
+		return 2;
+	}
+	
+	@Override
+	public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
+		if(args.length < 1) {
+			throw new WrongUsageException(getUsage(sender));
+		}
+		
+		switch(args[0]) {
+		case "show":
+			int limit = args.length > 1 ? parseInt(args[1], 1) : 8;
+			for(String line : WorldGenMetrics.report(limit)) {
+				sender.sendMessage(new TextComponentString(line));
+			}
+			break;
+		case "start":
+			WorldGenMetrics.setEnabled(true);
+			sender.sendMessage(new TextComponentString("Worldgen metrics enabled"));
+			break;
+		case "stop":
+			WorldGenMetrics.setEnabled(false);
+			sender.sendMessage(new TextComponentString("Worldgen metrics disabled"));
+			break;
+		case "reset":
+			WorldGenMetrics.reset();
+			sender.sendMessage(new TextComponentString("Worldgen metrics reset"));
+			break;
+		case "export":
+			File file = new File(server.getDataDirectory(), args.length > 1 ? args[1] : "dynamictrees-metrics.csv");
+			try {
+				WorldGenMetrics.export(file);
+			} catch (IOException e) {
+				throw new CommandException("Unable to write worldgen metrics to " + file + ": " + e.getMessage());
+			}
+			sender.sendMessage(new TextComponentString("Worldgen metrics written to " + file));
+			break;
+		default:
+			throw new WrongUsageException(getUsage(sender));
+		}
+	}
+	
+	@Override
+	public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, BlockPos targetPos) {
+		if(args.length == 1) {
+			return getListOfStringsMatchingLastWord(args, "show", "start", "stop", "reset", "export");
+		}
+		return Collections.emptyList();
+	}
+	
+}
@@ -1,13 +1,18 @@
 package com.ferreusveritas.dynamictrees.event;
 
 import com.ferreusveritas.dynamictrees.worldgen.ChunkCircleManager;
+import com.ferreusveritas.dynamictrees.worldgen.PendingVoxels;
+import com.ferreusveritas.dynamictrees.worldgen.PregenTask;
 import com.ferreusveritas.dynamictrees.worldgen.TreeGenerator;
 
 import net.minecraft.nbt.NBTTagByteArray;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import net.minecraftforge.event.world.ChunkDataEvent;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
+import net.minecraftforge.fml.common.gameevent.TickEvent.WorldTickEvent;
 
 public class CircleEventHandler {
 
@@ -22,6 +27,26 @@ public class CircleEventHandler {
 		if(world.provider.getDimension() == 0 && !world.isRemote) {
 			TreeGenerator.getTreeGenerator().onWorldUnload();//clears the circles
 		}
+		PendingVoxels.unloadWorld(world);
+	}
+
+	@SubscribeEvent
+	public void onWorldTick(WorldTickEvent event) {
+		if(event.phase == Phase.END && event.world.provider.getDimension() == 0 && event.world instanceof WorldServer) {
+			TreeGenerator.getTreeGenerator().getCirclePresolver().update((WorldServer) event.world);
+			PregenTask.get(event.world).update((WorldServer) event.world);
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldSave(WorldEvent.Save event) {
+		World world = event.getWorld();
+		if(world.provider.getDimension() == 0 && !world.isRemote) {
+			TreeGenerator.getTreeGenerator().getChunkCircleManager().flush();//Writes out the circle side store
+		}
+		if(!world.isRemote) {
+			PendingVoxels.saveWorld(world);
+		}
 	}
 
 	@SubscribeEvent 
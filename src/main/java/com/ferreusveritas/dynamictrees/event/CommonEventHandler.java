@@ -1,7 +1,9 @@
 package com.ferreusveritas.dynamictrees.event;
 
 import com.ferreusveritas.dynamictrees.seasons.SeasonManager;
+import com.ferreusveritas.dynamictrees.systems.LeavesSpeciesCache;
 
+import net.minecraftforge.event.world.ChunkEvent;
 import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent.Phase;
@@ -24,4 +26,16 @@ public class CommonEventHandler {
 		event.getWorld().addEventListener(new BurningEventListener());
 	}
 	
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event) {
+		LeavesSpeciesCache.unloadWorld(event.getWorld());
+	}
+	
+	@SubscribeEvent
+	public void onChunkUnload(ChunkEvent.Unload event) {
+		if(!event.getWorld().isRemote) {
+			LeavesSpeciesCache.getCache(event.getWorld()).unloadChunk(event.getChunk().x, event.getChunk().z);
+		}
+	}
+	
 }
\ No newline at end of file
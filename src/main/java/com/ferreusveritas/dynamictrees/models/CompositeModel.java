@@ -1,14 +1,18 @@
 package com.ferreusveritas.dynamictrees.models;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 import org.lwjgl.util.vector.Vector3f;
 
 import com.ferreusveritas.dynamictrees.blocks.BlockBranch;
 import com.ferreusveritas.dynamictrees.util.MathHelper;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 
 import net.minecraft.block.state.IBlockState;
@@ -24,10 +28,12 @@ import net.minecraft.client.renderer.block.model.ModelBlock;
 import net.minecraft.client.renderer.block.model.ModelRotation;
 import net.minecraft.client.renderer.block.model.SimpleBakedModel;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.util.BlockRenderLayer;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.EnumFacing.Axis;
 import net.minecraft.util.EnumFacing.AxisDirection;
 import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.client.MinecraftForgeClient;
 import net.minecraftforge.common.property.IExtendedBlockState;
 import net.minecraftforge.common.property.IUnlistedProperty;
 
@@ -42,6 +48,10 @@ public class CompositeModel implements IBakedModel {
 	private IBakedModel cores[][] = new IBakedModel[3][8]; //8 Cores for 3 axis with the bark texture all all 6 sides rotated appropriately.
 	private IBakedModel rings[] = new IBakedModel[8]; //8 Cores with the ring textures on all 6 sides
 	
+	private static final int maxCachedQuadLists = 4096;
+	private static final LongAdder quadListBuilds = new LongAdder();
+	private final ConcurrentHashMap<Long, List<BakedQuad>> quadCache = new ConcurrentHashMap<Long, List<BakedQuad>>();//Chunks are built on several threads
+	
 	public CompositeModel(ResourceLocation barkRes, ResourceLocation ringsRes, Function<ResourceLocation, TextureAtlasSprite> bakedTextureGetter) {		
 		this.modelBlock = new ModelBlock(null, null, null, false, false, ItemCameraTransforms.DEFAULT, null);
 		
@@ -166,53 +176,102 @@ public class CompositeModel implements IBakedModel {
 	
 	@Override
 	public List<BakedQuad> getQuads(IBlockState blockState, EnumFacing side, long rand) {
-		List<BakedQuad> quadsList = new LinkedList<BakedQuad>();
-		IExtendedBlockState extendedBlockState = (IExtendedBlockState)blockState;
 		if (blockState instanceof IExtendedBlockState) {
+			IExtendedBlockState extendedBlockState = (IExtendedBlockState)blockState;
 			int coreRadius = getRadius(blockState);
 			int[] connections = pollConnections(coreRadius, extendedBlockState);
 			
-			//Count number of connections
-			int numConnections = 0;
-			for(int i: connections) {
-				numConnections += (i != 0) ? 1: 0;
-			}
-			
-			//The source direction is the biggest connection from one of the 6 directions
-			EnumFacing sourceDir = getSourceDir(coreRadius, connections);
-			if(sourceDir == null) {
-				sourceDir = EnumFacing.DOWN;
-			}
-			int coreDir = resolveCoreDir(sourceDir);
-			
-			//This is for drawing the rings on a terminating branch
-			EnumFacing coreRingDir = (numConnections == 1) ? sourceDir.getOpposite() : null;
-			
-			//Get quads for core model
-			if(side == null || coreRadius != connections[side.getIndex()]) {
-				if(coreRingDir == null || coreRingDir != side) {
-					quadsList.addAll(cores[coreDir][coreRadius-1].getQuads(blockState, side, rand));
-				} else {
-					quadsList.addAll(rings[coreRadius-1].getQuads(blockState, side, rand));
+			//Branches with the same radius and connections are made of the same quads so the lists are shared
+			long signature = getSignature(coreRadius, connections, side, MinecraftForgeClient.getRenderLayer());
+			List<BakedQuad> quadsList = quadCache.get(signature);
+			if(quadsList == null) {
+				quadsList = ImmutableList.copyOf(buildQuads(extendedBlockState, coreRadius, connections, side, rand));
+				if(quadCache.size() >= maxCachedQuadLists) {
+					quadCache.clear();//Only reached with an unusual mix of connections.  Rebuilding is cheap.
 				}
+				quadCache.put(signature, quadsList);
+				quadListBuilds.increment();
 			}
-			//Get quads for sleeves models
-			if(coreRadius != 8) { //Special case for r!=8.. If it's a solid block so it has no sleeves
-				for(EnumFacing connDir : EnumFacing.VALUES) {
-					int idx = connDir.getIndex();
-					int connRadius = connections[idx];
-					//If the connection side matches the quadpull side then cull the sleeve face.  Don't cull radius 1 connections for leaves(which are partly transparent).
-					if (connRadius > 0  && (connRadius == 1 || side != connDir)) {
-						quadsList.addAll(sleeves[idx][connRadius-1].getQuads(extendedBlockState, side, rand));
-					}
+			return quadsList;
+		}
+		
+		return Collections.emptyList();//Not extended block state
+	}
+	
+	/**
+	 * Packs everything that decides the quads of a branch into a single number.  4 bits for the radius and each of
+	 * the 6 connections, 3 bits for the side and 3 bits for the render layer.
+	 * 
+	 * @param coreRadius the radius of this block
+	 * @param connections an array of 6 integers, one for the radius of each connecting side. DUNSWE.
+	 * @param side the side being drawn or null for the quads that aren't culled by any side
+	 * @param layer the layer being drawn or null when not drawing a chunk
+	 * @return the signature
+	 */
+	protected long getSignature(int coreRadius, int[] connections, EnumFacing side, BlockRenderLayer layer) {
+		long signature = coreRadius;
+		for(int connection : connections) {
+			signature = signature << 4 | connection;
+		}
+		signature = signature << 3 | (side != null ? side.getIndex() : 6);
+		signature = signature << 3 | (layer != null ? layer.ordinal() : 7);
+		return signature;
+	}
+	
+	/**
+	 * Gathers the quads of the core and sleeve models for a branch with the given connections.
+	 * 
+	 * @return a new list of quads
+	 */
+	protected List<BakedQuad> buildQuads(IExtendedBlockState extendedBlockState, int coreRadius, int[] connections, EnumFacing side, long rand) {
+		List<BakedQuad> quadsList = new ArrayList<BakedQuad>();
+		
+		//Count number of connections
+		int numConnections = 0;
+		for(int i: connections) {
+			numConnections += (i != 0) ? 1: 0;
+		}
+		
+		//The source direction is the biggest connection from one of the 6 directions
+		EnumFacing sourceDir = getSourceDir(coreRadius, connections);
+		if(sourceDir == null) {
+			sourceDir = EnumFacing.DOWN;
+		}
+		int coreDir = resolveCoreDir(sourceDir);
+		
+		//This is for drawing the rings on a terminating branch
+		EnumFacing coreRingDir = (numConnections == 1) ? sourceDir.getOpposite() : null;
+		
+		//Get quads for core model
+		if(side == null || coreRadius != connections[side.getIndex()]) {
+			if(coreRingDir == null || coreRingDir != side) {
+				quadsList.addAll(cores[coreDir][coreRadius-1].getQuads(extendedBlockState, side, rand));
+			} else {
+				quadsList.addAll(rings[coreRadius-1].getQuads(extendedBlockState, side, rand));
+			}
+		}
+		//Get quads for sleeves models
+		if(coreRadius != 8) { //Special case for r!=8.. If it's a solid block so it has no sleeves
+			for(EnumFacing connDir : EnumFacing.VALUES) {
+				int idx = connDir.getIndex();
+				int connRadius = connections[idx];
+				//If the connection side matches the quadpull side then cull the sleeve face.  Don't cull radius 1 connections for leaves(which are partly transparent).
+				if (connRadius > 0  && (connRadius == 1 || side != connDir)) {
+					quadsList.addAll(sleeves[idx][connRadius-1].getQuads(extendedBlockState, side, rand));
 				}
 			}
-		} else {
-			//Not extended block state
 		}
 		
 		return quadsList;
 	}
+	
+	/**
+	 * @return The number of quad lists that have been built by every branch model.  Every other call to
+	 * {@link #getQuads} was served from a cache.
+	 */
+	public static long getQuadListBuilds() {
+		return quadListBuilds.sum();
+	}
 
 	/**
 	 * Checks all neighboring tree parts to determine the connection radius for each side of this branch block.
@@ -0,0 +1,122 @@
+package com.ferreusveritas.dynamictrees.systems;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import com.ferreusveritas.dynamictrees.ModConstants;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldSavedData;
+import net.minecraftforge.common.util.Constants.NBT;
+
+/**
+* Keeps track of the fruit that hangs from each tree.  The ledger allows a tree to know how much fruit it
+* bears without mapping it's branch network.  Fruit drops out of the ledger as soon as it's removed from
+* the world.
+*
+* @author ferreusveritas
+*/
+public class FruitLedger extends WorldSavedData {
+
+	public static final String DATA_NAME = ModConstants.MODID + "_fruit";
+
+	private final HashMap<Long, HashSet<Long>> trees = new HashMap<Long, HashSet<Long>>();//rootPos -> fruitPos
+	private final HashMap<Long, Long> owners = new HashMap<Long, Long>();//fruitPos -> rootPos
+
+	public FruitLedger() {
+		this(DATA_NAME);
+	}
+
+	public FruitLedger(String name) {
+		super(name);
+	}
+
+	public static FruitLedger get(World world) {
+		MapStorage storage = world.getPerWorldStorage();
+		FruitLedger ledger = (FruitLedger) storage.getOrLoadData(FruitLedger.class, DATA_NAME);
+
+		if(ledger == null) {
+			ledger = new FruitLedger();
+			storage.setData(DATA_NAME, ledger);
+		}
+
+		return ledger;
+	}
+
+	/**
+	 * @param rootPos The position of the rooty dirt of the tree bearing the fruit
+	 * @param fruitPos The position of the fruit
+	 */
+	public void addFruit(BlockPos rootPos, BlockPos fruitPos) {
+		removeFruit(fruitPos);//In case it belonged to another tree
+		trees.computeIfAbsent(rootPos.toLong(), k -> new HashSet<Long>()).add(fruitPos.toLong());
+		owners.put(fruitPos.toLong(), rootPos.toLong());
+		markDirty();
+	}
+
+	public void removeFruit(BlockPos fruitPos) {
+		Long rootPos = owners.remove(fruitPos.toLong());
+		if(rootPos != null) {
+			HashSet<Long> fruit = trees.get(rootPos);
+			fruit.remove(fruitPos.toLong());
+			if(fruit.isEmpty()) {
+				trees.remove(rootPos);
+			}
+			markDirty();
+		}
+	}
+
+	public int getFruitCount(BlockPos rootPos) {
+		HashSet<Long> fruit = trees.get(rootPos.toLong());
+		return fruit != null ? fruit.size() : 0;
+	}
+
+	@Override
+	public void readFromNBT(NBTTagCompound tag) {
+		trees.clear();
+		owners.clear();
+
+		NBTTagList treeList = tag.getTagList("trees", NBT.TAG_COMPOUND);
+		for(int t = 0; t < treeList.tagCount(); t++) {
+			NBTTagCompound treeTag = treeList.getCompoundTagAt(t);
+			long rootPos = treeTag.getLong("root");
+			NBTTagList fruitList = treeTag.getTagList("fruit", NBT.TAG_COMPOUND);
+			HashSet<Long> fruit = new HashSet<Long>();
+			for(int f = 0; f < fruitList.tagCount(); f++) {
+				NBTTagCompound fruitTag = fruitList.getCompoundTagAt(f);
+				fruit.add(fruitTag.getLong("pos"));
+				owners.put(fruitTag.getLong("pos"), rootPos);
+			}
+			if(!fruit.isEmpty()) {
+				trees.put(rootPos, fruit);
+			}
+		}
+	}
+
+	@Override
+	public NBTTagCompound writeToNBT(NBTTagCompound tag) {
+		NBTTagList treeList = new NBTTagList();
+
+		for(Map.Entry<Long, HashSet<Long>> tree : trees.entrySet()) {
+			NBTTagCompound treeTag = new NBTTagCompound();
+			treeTag.setLong("root", tree.getKey());
+			NBTTagList fruitList = new NBTTagList();
+			for(long fruitPos : tree.getValue()) {
+				NBTTagCompound fruitTag = new NBTTagCompound();
+				fruitTag.setLong("pos", fruitPos);
+				fruitList.appendTag(fruitTag);
+			}
+			treeTag.setTag("fruit", fruitList);
+			treeList.appendTag(treeTag);
+		}
+
+		tag.setTag("trees", treeList);
+		return tag;
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.ferreusveritas.dynamictrees.systems;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.minecraft.block.Block;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.event.ForgeEventFactory;
+
+/**
+* Removes a set of canopy blocks(leaves and twigs) from the world and defers the neighbor notifications
+* until all of the removals have been applied.  Only the neighbors that lie outside of the batch are
+* notified.  This prevents a dissolving canopy from waking up it's own blocks over and over again as
+* it's taken apart block by block.
+*
+* @author ferreusveritas
+*/
+public class LeavesRemovalBatch {
+
+	private final World world;
+	private final HashMap<BlockPos, Block> removed = new HashMap<BlockPos, Block>();//The position and the block that was there
+
+	public LeavesRemovalBatch(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Sets the block to air without notifying the neighbors.  The neighbors are notified when the batch is flushed.
+	 *
+	 * @param pos The position of the block to remove
+	 */
+	public void remove(BlockPos pos) {
+		Block block = world.getBlockState(pos).getBlock();
+		world.setBlockState(pos, Blocks.AIR.getDefaultState(), 2);//Update the client but hold off on notifying the neighbors
+		removed.putIfAbsent(pos.toImmutable(), block);
+	}
+
+	public boolean isEmpty() {
+		return removed.isEmpty();
+	}
+
+	/**
+	 * Notifies all of the neighbors outside of the batch that their neighbor has changed just like setting the
+	 * blocks with flag 1 would have.  The Forge neighbor notify event is fired and observers are updated for every
+	 * removed block.  The batch is empty afterwards and may be reused.
+	 */
+	public void flush() {
+		for(Map.Entry<BlockPos, Block> entry: removed.entrySet()) {
+			BlockPos pos = entry.getKey();
+			Block block = entry.getValue();
+
+			EnumSet<EnumFacing> sides = EnumSet.noneOf(EnumFacing.class);
+			for(EnumFacing dir: EnumFacing.VALUES) {
+				if(!removed.containsKey(pos.offset(dir))) {//Blocks inside the batch are gone so there's nobody there to tell
+					sides.add(dir);
+				}
+			}
+
+			if(!sides.isEmpty() && !ForgeEventFactory.onNeighborNotify(world, pos, world.getBlockState(pos), sides, false).isCanceled()) {
+				for(EnumFacing dir: sides) {
+					world.neighborChanged(pos.offset(dir), block, pos);
+				}
+			}
+
+			world.updateObservingBlocksAt(pos, block);
+		}
+
+		removed.clear();
+	}
+
+}
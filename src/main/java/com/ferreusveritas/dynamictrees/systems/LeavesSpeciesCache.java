@@ -0,0 +1,129 @@
+package com.ferreusveritas.dynamictrees.systems;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.ferreusveritas.dynamictrees.api.TreeHelper;
+import com.ferreusveritas.dynamictrees.blocks.BlockRootyDirt;
+import com.ferreusveritas.dynamictrees.trees.Species;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+/**
+* Remembers which tree owns a leaf cluster so that the species of a leaves block can be found without
+* mapping the entire branch network back to the root node.  Leaf clusters are keyed by the position of
+* the twig(a branch with a radius of 1) at their center and resolve to the position of the {@link BlockRootyDirt}
+* of the tree.
+*
+* The cache is filled as a side effect of growth and tree analysis and is invalidated when branches are removed.
+* Removing a twig only forgets the twig itself.  Removing a thicker branch can disconnect anything beyond it so
+* all of the twigs within reach of the network are forgotten.  Entries are bucketed by chunk so that they can be
+* dropped when their chunk unloads.
+*
+* @author ferreusveritas
+*/
+public class LeavesSpeciesCache {
+
+	private static final Map<World, LeavesSpeciesCache> caches = new WeakHashMap<World, LeavesSpeciesCache>();
+
+	/** Branch networks are limited to a depth of 32 so this many chunks in every direction covers any network */
+	private static final int invalidationChunkRadius = 2;
+
+	private final HashMap<Long, HashMap<Long, Long>> chunkBuckets = new HashMap<Long, HashMap<Long, Long>>();
+
+	public static synchronized LeavesSpeciesCache getCache(World world) {//Off-world growth uses caches from many threads
+		return caches.computeIfAbsent(world, w -> new LeavesSpeciesCache());
+	}
+
+	public static synchronized void unloadWorld(World world) {
+		caches.remove(world);
+	}
+
+	private static long chunkKey(BlockPos pos) {
+		return ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+	}
+
+	/**
+	 * @param twigPos The position of a twig
+	 * @param rootPos The position of the {@link BlockRootyDirt} of the tree the twig belongs to
+	 */
+	public void put(BlockPos twigPos, BlockPos rootPos) {
+		chunkBuckets.computeIfAbsent(chunkKey(twigPos), k -> new HashMap<Long, Long>()).put(twigPos.toLong(), rootPos.toLong());
+	}
+
+	public void putAll(Iterable<BlockPos> twigs, BlockPos rootPos) {
+		for(BlockPos twigPos: twigs) {
+			put(twigPos, rootPos);
+		}
+	}
+
+	/**
+	 * @param twigPos The position of a twig
+	 * @return The position of the root node of the tree that owns the twig or null if it's not cached
+	 */
+	public BlockPos getRoot(BlockPos twigPos) {
+		HashMap<Long, Long> bucket = chunkBuckets.get(chunkKey(twigPos));
+		if(bucket != null) {
+			Long root = bucket.get(twigPos.toLong());
+			if(root != null) {
+				return BlockPos.fromLong(root);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Resolves the species from the cache.  The root node is checked to still be in place before it is trusted.
+	 *
+	 * @param world The world
+	 * @param twigPos The position of a twig
+	 * @return The species of the tree or null if it's not cached
+	 */
+	public Species getSpecies(World world, BlockPos twigPos) {
+		BlockPos rootPos = getRoot(twigPos);
+		if(rootPos != null) {
+			BlockRootyDirt rootyDirt = TreeHelper.getRootyDirt(world, rootPos);
+			if(rootyDirt != null) {
+				return rootyDirt.getSpecies(world, rootPos);
+			}
+			remove(twigPos);//The root node is gone so the entry is stale
+		}
+		return null;
+	}
+
+	public void remove(BlockPos twigPos) {
+		HashMap<Long, Long> bucket = chunkBuckets.get(chunkKey(twigPos));
+		if(bucket != null) {
+			bucket.remove(twigPos.toLong());
+		}
+	}
+
+	/**
+	 * Called when a branch is removed from the world.
+	 *
+	 * @param branchPos The position of the removed branch
+	 * @param radius The radius the branch had before it was removed
+	 */
+	public void invalidate(BlockPos branchPos, int radius) {
+		if(radius <= 1) {//A twig doesn't hold anything up but itself
+			remove(branchPos);
+			return;
+		}
+
+		int chunkX = branchPos.getX() >> 4;
+		int chunkZ = branchPos.getZ() >> 4;
+		for(int cz = -invalidationChunkRadius; cz <= invalidationChunkRadius; cz++) {
+			for(int cx = -invalidationChunkRadius; cx <= invalidationChunkRadius; cx++) {
+				chunkBuckets.remove(ChunkPos.asLong(chunkX + cx, chunkZ + cz));
+			}
+		}
+	}
+
+	public void unloadChunk(int chunkX, int chunkZ) {
+		chunkBuckets.remove(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+}
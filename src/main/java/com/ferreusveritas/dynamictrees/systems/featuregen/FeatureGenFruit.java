@@ -1,8 +1,10 @@
 package com.ferreusveritas.dynamictrees.systems.featuregen;
 
 import java.util.List;
+import java.util.Random;
 
 import com.ferreusveritas.dynamictrees.api.IGenFeature;
+import com.ferreusveritas.dynamictrees.systems.FruitLedger;
 import com.ferreusveritas.dynamictrees.trees.Species;
 import com.ferreusveritas.dynamictrees.util.CoordUtils;
 
@@ -46,19 +48,28 @@ public class FeatureGenFruit implements IGenFeature {
 	
 	@Override
 	public void gen(World world, BlockPos treePos, List<BlockPos> endPoints) {
+		gen(world, treePos, endPoints, world.rand);
+	}
+	
+	@Override
+	public void gen(World world, BlockPos treePos, List<BlockPos> endPoints, Random random) {
 		if(!endPoints.isEmpty()) {
 			for(int i = 0; i < qty; i++) {
-				BlockPos endPoint = endPoints.get(world.rand.nextInt(endPoints.size()));
-				addFruit(world, species, treePos, endPoint);
+				BlockPos endPoint = endPoints.get(random.nextInt(endPoints.size()));
+				addFruit(world, species, treePos, endPoint, random);
 			}
 		}
 	}
 	
-	protected void addFruit(World world, Species species, BlockPos treePos, BlockPos branchPos) {
-		BlockPos fruitPos = CoordUtils.getRayTraceFruitPos(world, species, treePos, branchPos);
+	protected void addFruit(World world, Species species, BlockPos treePos, BlockPos branchPos, Random random) {
+		BlockPos fruitPos = CoordUtils.getRayTraceFruitPos(world, species, treePos, branchPos, random);
 		if(fruitPos != BlockPos.ORIGIN) {
 			if ( !enableHash || ( (coordHashCode(fruitPos) & 1) != 0) ) {
-				world.setBlockState(fruitPos, fruitState);
+				FruitLedger ledger = FruitLedger.get(world);
+				ledger.addFruit(treePos.down(), fruitPos);
+				if(!world.setBlockState(fruitPos, fruitState)) {
+					ledger.removeFruit(fruitPos);
+				}
 			}
 		}
 	}
@@ -24,10 +24,14 @@ public class FeatureGenPodzol implements IGenFeature {
 	
 	@Override
 	public void gen(World world, BlockPos treePos, List<BlockPos> endPoints) {
+		gen(world, treePos, endPoints, world.rand);
+	}
+	
+	@Override
+	public void gen(World world, BlockPos treePos, List<BlockPos> endPoints, Random random) {
 
 		if(!endPoints.isEmpty()) {
 
-			Random random = world.rand;
 			BlockPos pos = endPoints.get(random.nextInt(endPoints.size()));
 			
 			int x = pos.getX() + random.nextInt(5) - 2;
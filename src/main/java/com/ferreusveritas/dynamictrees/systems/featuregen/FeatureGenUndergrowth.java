@@ -1,6 +1,7 @@
 package com.ferreusveritas.dynamictrees.systems.featuregen;
 
 import java.util.List;
+import java.util.Random;
 
 import com.ferreusveritas.dynamictrees.api.IGenFeature;
 import com.ferreusveritas.dynamictrees.trees.Species;
@@ -33,21 +34,26 @@ public class FeatureGenUndergrowth implements IGenFeature {
 	
 	@Override
 	public void gen(World world, BlockPos treePos, List<BlockPos> endPoints) {
+		gen(world, treePos, endPoints, world.rand);
+	}
+	
+	@Override
+	public void gen(World world, BlockPos treePos, List<BlockPos> endPoints, Random random) {
 
 		Vec3d vTree = new Vec3d(treePos).addVector(0.5, 0.5, 0.5);
 
 		for(int i = 0; i < 2; i++) {
 
-			int rad = MathHelper.clamp(radius, 2, world.rand.nextInt(radius - 1) + 2);
-			Vec3d v = vTree.add(new Vec3d(1, 0, 0).scale(rad).rotateYaw((float) (world.rand.nextFloat() * Math.PI * 2)));
+			int rad = MathHelper.clamp(radius, 2, random.nextInt(radius - 1) + 2);
+			Vec3d v = vTree.add(new Vec3d(1, 0, 0).scale(rad).rotateYaw((float) (random.nextFloat() * Math.PI * 2)));
 
 			BlockPos pos = CoordUtils.findGround(world, new BlockPos(v));
 			IBlockState soilBlockState = world.getBlockState(pos);
 
 			if(species.isAcceptableSoil(world, pos, soilBlockState)) {
-					int type = world.rand.nextInt(2);
+					int type = random.nextInt(2);
 					world.setBlockState(pos, Blocks.LOG.getDefaultState().withProperty(BlockOldLog.VARIANT, type == 0 ? BlockPlanks.EnumType.OAK : BlockPlanks.EnumType.JUNGLE));
-					pos = pos.up(world.rand.nextInt(3));
+					pos = pos.up(random.nextInt(3));
 					
 					IBlockState leavesState = Blocks.LEAVES.getDefaultState()
 							.withProperty(BlockOldLeaf.VARIANT, type == 0 ? BlockPlanks.EnumType.OAK : BlockPlanks.EnumType.JUNGLE)
@@ -1,6 +1,7 @@
 package com.ferreusveritas.dynamictrees.systems.featuregen;
 
 import java.util.List;
+import java.util.Random;
 
 import com.ferreusveritas.dynamictrees.api.IGenFeature;
 import com.ferreusveritas.dynamictrees.trees.Species;
@@ -50,17 +51,22 @@ public class FeatureGenVine implements IGenFeature {
 	
 	@Override
 	public void gen(World world, BlockPos treePos, List<BlockPos> endPoints) {
+		gen(world, treePos, endPoints, world.rand);
+	}
+	
+	@Override
+	public void gen(World world, BlockPos treePos, List<BlockPos> endPoints, Random random) {
 		if(!endPoints.isEmpty()) {
 			for(int i = 0; i < qty; i++) {
-				BlockPos endPoint = endPoints.get(world.rand.nextInt(endPoints.size()));
-				addVine(world, species, treePos, endPoint);
+				BlockPos endPoint = endPoints.get(random.nextInt(endPoints.size()));
+				addVine(world, species, treePos, endPoint, random);
 			}
 		}
 	}
 	
-	protected void addVine(World world, Species species, BlockPos treePos, BlockPos branchPos) {
+	protected void addVine(World world, Species species, BlockPos treePos, BlockPos branchPos, Random random) {
 		
-		RayTraceResult result = CoordUtils.branchRayTrace(world, species, treePos, branchPos, 90, verSpread, rayDistance);
+		RayTraceResult result = CoordUtils.branchRayTrace(world, species, treePos, branchPos, 90, verSpread, rayDistance, random);
 		
 		if(result != null) {
 			BlockPos vinePos = result.getBlockPos().offset(result.sideHit);
@@ -68,7 +74,7 @@ public class FeatureGenVine implements IGenFeature {
 				PropertyBool vineSide = vineMap[result.sideHit.getOpposite().getIndex()];
 				if(vineSide != null) {
 					IBlockState vineState = Blocks.VINE.getDefaultState().withProperty(vineSide, Boolean.valueOf(true));
-					int len = MathHelper.clamp(world.rand.nextInt(maxLength) + 3, 3, maxLength);
+					int len = MathHelper.clamp(random.nextInt(maxLength) + 3, 3, maxLength);
 					for(int i = 0; i < len; i++) {
 						if(world.isAirBlock(vinePos)) {
 							world.setBlockState(vinePos, vineState);
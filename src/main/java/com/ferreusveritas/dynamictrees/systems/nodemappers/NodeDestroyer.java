@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import com.ferreusveritas.dynamictrees.api.TreeHelper;
 import com.ferreusveritas.dynamictrees.api.network.INodeInspector;
 import com.ferreusveritas.dynamictrees.blocks.BlockBranch;
+import com.ferreusveritas.dynamictrees.systems.LeavesRemovalBatch;
 import com.ferreusveritas.dynamictrees.trees.DynamicTree;
 import com.ferreusveritas.dynamictrees.trees.Species;
 import com.ferreusveritas.dynamictrees.util.CompatHelper;
@@ -23,9 +24,19 @@ import net.minecraft.world.World;
 public class NodeDestroyer implements INodeInspector {
 
 	Species species;//Destroy any node that's made of the same kind of wood
+	LeavesRemovalBatch leavesBatch;//Optional batch for deferring leaves neighbor notifications until the whole tree is felled
 
 	public NodeDestroyer(Species species) {
+		this(species, null);
+	}
+
+	/**
+	 * @param species The species of the tree being destroyed
+	 * @param leavesBatch A batch to collect the destroyed leaves in.  The caller is responsible for flushing it after the analysis.
+	 */
+	public NodeDestroyer(Species species, LeavesRemovalBatch leavesBatch) {
 		this.species = species;
+		this.leavesBatch = leavesBatch;
 	}
 
 	@Override
@@ -51,9 +62,10 @@ public class NodeDestroyer implements INodeInspector {
 		if (!world.isRemote && !world.restoringBlockSnapshots) { // do not drop items while restoring blockstates, prevents item dupe
 			ArrayList<ItemStack> dropList = new ArrayList<ItemStack>();
 			DynamicTree tree = species.getTree();
+			LeavesRemovalBatch batch = leavesBatch != null ? leavesBatch : new LeavesRemovalBatch(world);
 			for(BlockPos leavesPos : BlockPos.getAllInBox(twigPos.add(-3, -3, -3), twigPos.add(3, 3, 3))) {
 				if(tree.isCompatibleGenericLeaves(world, leavesPos)) {
-					world.setBlockToAir(leavesPos);
+					batch.remove(leavesPos);
 					dropList.clear();
 					species.getTreeHarvestDrops(world, leavesPos, dropList, world.rand);
 					for(ItemStack stack : dropList) {
@@ -62,6 +74,9 @@ public class NodeDestroyer implements INodeInspector {
 					}
 				}
 			}
+			if(batch != leavesBatch) {
+				batch.flush();//We own this batch so it's up to us to notify the neighbors
+			}
 		}
 	}
 
@@ -3,6 +3,7 @@ package com.ferreusveritas.dynamictrees.systems.nodemappers;
 import com.ferreusveritas.dynamictrees.api.TreeHelper;
 import com.ferreusveritas.dynamictrees.api.network.INodeInspector;
 import com.ferreusveritas.dynamictrees.blocks.BlockBranch;
+import com.ferreusveritas.dynamictrees.systems.LeavesRemovalBatch;
 import com.ferreusveritas.dynamictrees.trees.Species;
 
 import net.minecraft.block.Block;
@@ -17,9 +18,19 @@ import net.minecraft.world.World;
 public class NodeDisease implements INodeInspector {
 
 	Species species;//Destroy any thin branches made of the same kind of wood.
+	LeavesRemovalBatch leavesBatch;//Optional batch for deferring neighbor notifications until the whole canopy is diseased
 
 	public NodeDisease(Species tree) {
+		this(tree, null);
+	}
+
+	/**
+	 * @param tree The species of the tree being diseased
+	 * @param leavesBatch A batch to collect the destroyed twigs in.  The caller is responsible for flushing it after the analysis.
+	 */
+	public NodeDisease(Species tree, LeavesRemovalBatch leavesBatch) {
 		this.species = tree;
+		this.leavesBatch = leavesBatch;
 	}
 
 	@Override
@@ -28,7 +39,11 @@ public class NodeDisease implements INodeInspector {
 		
 		if(branch != null && species.getTree() == branch.getTree()) {
 			if(branch.getRadius(world, pos) == 1) {
-				world.setBlockToAir(pos);//Destroy the thin branch
+				if(leavesBatch != null) {
+					leavesBatch.remove(pos);//Destroy the thin branch
+				} else {
+					world.setBlockToAir(pos);//Destroy the thin branch
+				}
 			}
 		}
 
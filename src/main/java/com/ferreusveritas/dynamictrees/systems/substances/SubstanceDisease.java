@@ -4,6 +4,7 @@ import com.ferreusveritas.dynamictrees.api.TreeHelper;
 import com.ferreusveritas.dynamictrees.api.network.MapSignal;
 import com.ferreusveritas.dynamictrees.api.substances.ISubstanceEffect;
 import com.ferreusveritas.dynamictrees.blocks.BlockRootyDirt;
+import com.ferreusveritas.dynamictrees.systems.LeavesRemovalBatch;
 import com.ferreusveritas.dynamictrees.systems.nodemappers.NodeDisease;
 import com.ferreusveritas.dynamictrees.trees.Species;
 
@@ -22,7 +23,9 @@ public class SubstanceDisease implements ISubstanceEffect {
 				if(world.isRemote) {
 					TreeHelper.treeParticles(world, rootPos, EnumParticleTypes.CRIT, 8);
 				} else {
-					dirt.startAnalysis(world, rootPos, new MapSignal(new NodeDisease(species)));
+					LeavesRemovalBatch leavesBatch = new LeavesRemovalBatch(world);
+					dirt.startAnalysis(world, rootPos, new MapSignal(new NodeDisease(species, leavesBatch)));
+					leavesBatch.flush();
 					dirt.fertilize(world, rootPos, -15);//destroy the soil life so it can no longer grow
 				}
 				return true;
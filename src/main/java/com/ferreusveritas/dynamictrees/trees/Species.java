@@ -22,6 +22,8 @@ import com.ferreusveritas.dynamictrees.blocks.BlockDynamicSapling;
 import com.ferreusveritas.dynamictrees.blocks.BlockRootyDirt;
 import com.ferreusveritas.dynamictrees.items.Seed;
 import com.ferreusveritas.dynamictrees.systems.GrowSignal;
+import com.ferreusveritas.dynamictrees.systems.LeavesRemovalBatch;
+import com.ferreusveritas.dynamictrees.systems.LeavesSpeciesCache;
 import com.ferreusveritas.dynamictrees.systems.dropcreators.DropCreatorLogs;
 import com.ferreusveritas.dynamictrees.systems.dropcreators.DropCreatorSeed;
 import com.ferreusveritas.dynamictrees.systems.dropcreators.DropCreatorStorage;
@@ -30,9 +32,12 @@ import com.ferreusveritas.dynamictrees.systems.nodemappers.NodeFindEnds;
 import com.ferreusveritas.dynamictrees.util.CompatHelper;
 import com.ferreusveritas.dynamictrees.util.CoordUtils;
 import com.ferreusveritas.dynamictrees.util.MathHelper;
+import com.ferreusveritas.dynamictrees.util.SafeChunkBounds;
 import com.ferreusveritas.dynamictrees.util.SimpleVoxmap;
 import com.ferreusveritas.dynamictrees.worldgen.JoCode;
+import com.ferreusveritas.dynamictrees.worldgen.TreeBuffer;
 import com.ferreusveritas.dynamictrees.worldgen.TreeCodeStore;
+import com.ferreusveritas.dynamictrees.worldgen.TreeSite;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
@@ -65,6 +70,8 @@ public class Species extends net.minecraftforge.registries.IForgeRegistryEntry.I
 		@Override public boolean plantSapling(World world, BlockPos pos) { return false; }
 		@Override public IBlockState getDynamicSapling() { return Blocks.AIR.getDefaultState(); }
 		@Override public boolean generate(World world, BlockPos pos, Biome biome, Random random, int radius) { return false; }
+		@Override public boolean generate(World world, BlockPos pos, Biome biome, Random random, int radius, SafeChunkBounds safeBounds) { return false; }
+		@Override public TreeBuffer prepareGeneration(Random random, int radius, TreeSite site) { return null; }
 		@Override public float biomeSuitability(World world, BlockPos pos) { return 0.0f; }
 		@Override public boolean addDropCreator(IDropCreator dropCreator) { return false; }
 		@Override public ItemStack setSeedStack(ItemStack newSeedStack) { return seedStack; }
@@ -120,6 +127,8 @@ public class Species extends net.minecraftforge.registries.IForgeRegistryEntry.I
 	protected Map <Type, Float> envFactors = new HashMap<Type, Float>();//Environmental factors
 	/** A list of JoCodes for world generation. Initialized in addJoCodes()*/
 	protected TreeCodeStore joCodeStore = new TreeCodeStore(this);
+	/** Whether generate has been overridden.  Looked up the first time it's needed. */
+	private Boolean customGeneration;
 
 	public Species() {
 		this.treeFamily = DynamicTree.NULLTREE;
@@ -480,6 +489,9 @@ public class Species extends net.minecraftforge.registries.IForgeRegistryEntry.I
 			return false;//Last piece of tree rotted away.
 		}
 		
+		//The surviving end points are the twigs at the center of each leaf cluster
+		LeavesSpeciesCache.getCache(world).putAll(ends, rootPos);
+		
 		if(!rapid) {
 			//This will handle seed drops
 			handleVoluntaryDrops(world, ends, rootPos, treePos, soilLife);
@@ -519,6 +531,14 @@ public class Species extends net.minecraftforge.registries.IForgeRegistryEntry.I
 	 * @return true if last piece of tree rotted away.
 	 */
 	public boolean handleRot(World world, List<BlockPos> ends, BlockPos rootPos, BlockPos treePos, int soilLife, boolean rapid) {
+		return handleRot(world, ends, rootPos, treePos, soilLife, rapid, world.rand);
+	}
+	
+	/**
+	 * Same as {@link #handleRot(World, List, BlockPos, BlockPos, int, boolean)} but draws from the given random
+	 * number generator.  Used by worldgen.
+	 */
+	public boolean handleRot(World world, List<BlockPos> ends, BlockPos rootPos, BlockPos treePos, int soilLife, boolean rapid, Random random) {
 		
 		Iterator<BlockPos> iter = ends.iterator();//We need an iterator since we may be removing elements.
 		SimpleVoxmap leafMap = getTree().getCellKit().getLeafCluster();
@@ -529,10 +549,10 @@ public class Species extends net.minecraftforge.registries.IForgeRegistryEntry.I
 			BlockBranch branch = TreeHelper.getBranch(branchState);
 			if(branch != null) {
 				int radius = branch.getRadius(branchState);
-				float rotChance = rotChance(world, endPos, world.rand, radius);
-				if(branch.checkForRot(world, endPos, radius, world.rand, rotChance, rapid) || radius != 1) {
+				float rotChance = rotChance(world, endPos, random, radius);
+				if(branch.checkForRot(world, endPos, radius, random, rotChance, rapid) || radius != 1) {
 					if(rapid) {
-						TreeHelper.ageVolume(world, endPos.down((leafMap.getLenZ() - 1) / 2), (leafMap.getLenX() - 1) / 2, leafMap.getLenY(), null, 2);
+						TreeHelper.ageVolume(world, endPos.down((leafMap.getLenZ() - 1) / 2), (leafMap.getLenX() - 1) / 2, leafMap.getLenY(), null, 2, random);
 					}
 					iter.remove();//Prune out the rotted end points so we don't spawn fruit from them.
 				}
@@ -664,7 +684,9 @@ public class Species extends net.minecraftforge.registries.IForgeRegistryEntry.I
 	 */
 	public boolean handleDisease(World world, ITreePart baseTreePart, BlockPos treePos, Random random, int soilLife) {
 		if(soilLife == 0 && ModConfigs.diseaseChance > random.nextFloat() ) {
-			baseTreePart.analyse(world, treePos, EnumFacing.DOWN, new MapSignal(new NodeDisease(this)));
+			LeavesRemovalBatch leavesBatch = new LeavesRemovalBatch(world);
+			baseTreePart.analyse(world, treePos, EnumFacing.DOWN, new MapSignal(new NodeDisease(this, leavesBatch)));
+			leavesBatch.flush();
 			return true;
 		}
 		
@@ -764,11 +786,22 @@ public class Species extends net.minecraftforge.registries.IForgeRegistryEntry.I
 	 * @return true if tree was generated. false otherwise.
 	 */
 	public boolean generate(World world, BlockPos pos, Biome biome, Random random, int radius) {
+		return generate(world, pos, biome, random, radius, new SafeChunkBounds(world, pos));
+	}
+	
+	/**
+	 * Worldgen spawn mechanism with an already established safe area.
+	 * 
+	 * @param safeBounds The area that is safe to place blocks in without hitting ungenerated chunks.  Must not be modified.
+	 * @return true if tree was generated. false otherwise.
+	 */
+	public boolean generate(World world, BlockPos pos, Biome biome, Random random, int radius, SafeChunkBounds safeBounds) {
 		EnumFacing facing = CoordUtils.getRandomDir(random);
 		if(getJoCodeStore() != null) {
-			JoCode code = getJoCodeStore().getRandomCode(radius, random);
+			TreeSite site = ModConfigs.worldGenFitCodes ? new TreeSite(world, pos, safeBounds, this) : null;
+			JoCode code = getJoCodeStore().getRandomCode(radius, random, facing, site);
 			if(code != null) {
-				code.generate(world, this, pos, biome, facing, radius);
+				code.generate(world, this, pos, biome, facing, radius, safeBounds, random);
 				return true;
 			}
 		}
@@ -776,6 +809,67 @@ public class Species extends net.minecraftforge.registries.IForgeRegistryEntry.I
 		return false;
 	}
 	
+	/**
+	 * Picks the shape of a worldgen tree ahead of time so it can be expanded off-world on any thread.  The random
+	 * numbers are used the same way as in {@link #generate}.  Species that override
+	 * {@link #generate(World, BlockPos, Biome, Random, int)} are never prepared so worldgen calls their override.
+	 * 
+	 * @param random The random number generator
+	 * @param radius The radius of the tree generation boundary
+	 * @return A tree to expand or null if this species can't be expanded off-world
+	 */
+	public TreeBuffer prepareGeneration(Random random, int radius) {
+		return prepareGeneration(random, radius, null);
+	}
+	
+	/**
+	 * Same as {@link #prepareGeneration(Random, int)} but only picks a code that fits the site when there is one.
+	 * 
+	 * @param site The space available where the tree will be rooted.  Null to pick any code.
+	 */
+	public TreeBuffer prepareGeneration(Random random, int radius, TreeSite site) {
+		if(hasCustomGeneration()) {
+			return null;
+		}
+		
+		EnumFacing facing = CoordUtils.getRandomDir(random);
+		if(getJoCodeStore() != null) {
+			JoCode code = getJoCodeStore().getRandomCode(radius, random, facing, site);
+			if(code != null) {
+				return new TreeBuffer(this, code, facing, radius);
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * @return true if this species overrides {@link #generate(World, BlockPos, Biome, Random, int)} with it's own
+	 * worldgen.  Such species are always generated through their override.
+	 */
+	public boolean hasCustomGeneration() {
+		if(customGeneration == null) {
+			try {
+				customGeneration = getClass().getMethod("generate", World.class, BlockPos.class, Biome.class, Random.class, int.class).getDeclaringClass() != Species.class;
+			} catch (NoSuchMethodException e) {
+				customGeneration = false;
+			}
+		}
+		return customGeneration;
+	}
+	
+	/**
+	 * Worldgen spawn mechanism for a tree from {@link #prepareGeneration}.
+	 * 
+	 * @param buffer The prepared tree.  It may or may not have been expanded.
+	 * @param random Used for aging, rot and decoration
+	 * @return true if tree was generated. false otherwise.
+	 */
+	public boolean generate(World world, BlockPos pos, Biome biome, SafeChunkBounds safeBounds, TreeBuffer buffer, Random random) {
+		buffer.getCode().generate(world, pos, biome, safeBounds, buffer, random);
+		return true;
+	}
+	
 	public TreeCodeStore getJoCodeStore() {
 		return joCodeStore;
 	}
@@ -799,6 +893,17 @@ public class Species extends net.minecraftforge.registries.IForgeRegistryEntry.I
 	 */
 	public void postGeneration(World world, BlockPos rootPos, Biome biome, int radius, List<BlockPos> endPoints, boolean worldGen) {}
 	
+	/**
+	 * Same as {@link #postGeneration(World, BlockPos, Biome, int, List, boolean)} but decorates with the given random
+	 * number generator.  During worldgen this is a stream dedicated to the tree so the decorations don't depend on the
+	 * order trees are generated in.  Calls the version without a random number generator unless overridden.
+	 * 
+	 * @param random The random number generator to decorate with
+	 */
+	public void postGeneration(World world, BlockPos rootPos, Biome biome, int radius, List<BlockPos> endPoints, boolean worldGen, Random random) {
+		postGeneration(world, rootPos, biome, radius, endPoints, worldGen);
+	}
+	
 	/**
 	 * Worldgen can produce thin sickly trees from the underinflation caused by not living it's full life.
 	 * This factor is an attempt to compensate for the problem.
@@ -1,6 +1,7 @@
 package com.ferreusveritas.dynamictrees.trees;
 
 import java.util.List;
+import java.util.Random;
 
 import com.ferreusveritas.dynamictrees.ModBlocks;
 import com.ferreusveritas.dynamictrees.api.TreeHelper;
@@ -102,10 +103,10 @@ public class TreeJungle extends DynamicTree {
 		}
 		
 		@Override
-		public void postGeneration(World world, BlockPos rootPos, Biome biome, int radius, List<BlockPos> endPoints, boolean worldGen) {
-			super.postGeneration(world, rootPos, biome, radius, endPoints, worldGen);
+		public void postGeneration(World world, BlockPos rootPos, Biome biome, int radius, List<BlockPos> endPoints, boolean worldGen, Random random) {
+			super.postGeneration(world, rootPos, biome, radius, endPoints, worldGen, random);
 
-			if(world.rand.nextInt() % 8 == 0) {
+			if(random.nextInt() % 8 == 0) {
 				addCocoa(world, rootPos, true);
 			}
 
@@ -113,10 +114,10 @@ public class TreeJungle extends DynamicTree {
 				BlockPos treePos = rootPos.up();
 				
 				//Generate Vines
-				vineGen.setQuantity(endPoints.size()).setMaxLength(20).gen(world, treePos, endPoints);
+				vineGen.setQuantity(endPoints.size()).setMaxLength(20).gen(world, treePos, endPoints, random);
 
 				//Generate undergrowth
-				underGen.setRadius(radius).gen(world, treePos, endPoints);
+				underGen.setRadius(radius).gen(world, treePos, endPoints, random);
 			}
 		}
 		
@@ -10,6 +10,7 @@ import com.ferreusveritas.dynamictrees.api.TreeHelper;
 import com.ferreusveritas.dynamictrees.api.network.MapSignal;
 import com.ferreusveritas.dynamictrees.blocks.BlockFruit;
 import com.ferreusveritas.dynamictrees.items.Seed;
+import com.ferreusveritas.dynamictrees.systems.FruitLedger;
 import com.ferreusveritas.dynamictrees.systems.dropcreators.DropCreatorApple;
 import com.ferreusveritas.dynamictrees.systems.dropcreators.DropCreatorHarvest;
 import com.ferreusveritas.dynamictrees.systems.featuregen.FeatureGenFruit;
@@ -116,11 +117,11 @@ public class TreeOak extends DynamicTree {
 		}
 		
 		@Override
-		public void postGeneration(World world, BlockPos rootPos, Biome biome, int radius, List<BlockPos> endPoints, boolean worldGen) {
-			super.postGeneration(world, rootPos, biome, radius, endPoints, worldGen);
+		public void postGeneration(World world, BlockPos rootPos, Biome biome, int radius, List<BlockPos> endPoints, boolean worldGen, Random random) {
+			super.postGeneration(world, rootPos, biome, radius, endPoints, worldGen, random);
 			
 			//Generate Vines
-			vineGen.setQuantity(5).gen(world, rootPos.up(), endPoints);
+			vineGen.setQuantity(5).gen(world, rootPos.up(), endPoints, random);
 		}
 	}
 
@@ -131,6 +132,7 @@ public class TreeOak extends DynamicTree {
 
 		FeatureGenFruit appleGen;
 		private static final String speciesName = "apple";
+		private static final int maxApples = 10;//A tree bearing this many apples doesn't bother looking for places to grow more
 		
 		public SpeciesAppleOak(DynamicTree treeFamily) {
 			super(new ResourceLocation(treeFamily.getName().getResourceDomain(), speciesName), treeFamily);
@@ -157,17 +159,17 @@ public class TreeOak extends DynamicTree {
 		}
 		
 		@Override
-		public void postGeneration(World world, BlockPos rootPos, Biome biome, int radius, List<BlockPos> endPoints, boolean worldGen) {
-			super.postGeneration(world, rootPos, biome, radius, endPoints, worldGen);
-			appleGen.setQuantity(10).setEnableHash(false).setFruit(ModBlocks.blockFruit.getDefaultState().withProperty(BlockFruit.AGE, 3)).gen(world, rootPos.up(), endPoints);
+		public void postGeneration(World world, BlockPos rootPos, Biome biome, int radius, List<BlockPos> endPoints, boolean worldGen, Random random) {
+			super.postGeneration(world, rootPos, biome, radius, endPoints, worldGen, random);
+			appleGen.setQuantity(10).setEnableHash(false).setFruit(ModBlocks.blockFruit.getDefaultState().withProperty(BlockFruit.AGE, 3)).gen(world, rootPos.up(), endPoints, random);
 		}
 		
 		@Override
 		public boolean postGrow(World world, BlockPos rootPos, BlockPos treePos, int soilLife, boolean rapid) {
-			if(ModConfigs.enableAppleTrees && soilLife < 4 && !rapid) { //TODO: Analyze fruit production based off of tree wood volume to determine fruit producing maturity
+			if(ModConfigs.enableAppleTrees && soilLife < 4 && !rapid && FruitLedger.get(world).getFruitCount(rootPos) < maxApples) { //TODO: Analyze fruit production based off of tree wood volume to determine fruit producing maturity
 				NodeFindEnds endFinder = new NodeFindEnds();
 				TreeHelper.startAnalysisFromRoot(world, rootPos, new MapSignal(endFinder));
-				appleGen.setQuantity(1).setEnableHash(true).setFruit(ModBlocks.blockFruit.getDefaultState().withProperty(BlockFruit.AGE, 0)).gen(world, rootPos.up(), endFinder.getEnds());
+				appleGen.setQuantity(1).setEnableHash(true).setFruit(ModBlocks.blockFruit.getDefaultState().withProperty(BlockFruit.AGE, 0)).gen(world, rootPos.up(), endFinder.getEnds(), world.rand);
 			}
 			return true;
 		}
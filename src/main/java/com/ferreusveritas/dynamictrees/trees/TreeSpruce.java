@@ -2,6 +2,7 @@ package com.ferreusveritas.dynamictrees.trees;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import com.ferreusveritas.dynamictrees.ModConfigs;
 import com.ferreusveritas.dynamictrees.api.TreeHelper;
@@ -96,13 +97,13 @@ public class TreeSpruce extends DynamicTree {
 			if(ModConfigs.podzolGen) {
 				NodeFindEnds endFinder = new NodeFindEnds();
 				TreeHelper.startAnalysisFromRoot(world, rootPos, new MapSignal(endFinder));
-				podzolGen.gen(world, treePos, endFinder.getEnds());
+				podzolGen.gen(world, treePos, endFinder.getEnds(), world.rand);
 			}
 			return true;
 		}
 		
 		@Override
-		public void postGeneration(World world, BlockPos rootPos, Biome biome, int radius, List<BlockPos> endPoints, boolean worldGen) {
+		public void postGeneration(World world, BlockPos rootPos, Biome biome, int radius, List<BlockPos> endPoints, boolean worldGen, Random random) {
 			//Manually place the highest few blocks of the conifer since the leafCluster voxmap won't handle it
 			BlockPos highest = Collections.max(endPoints, (a, b) -> a.getY() - b.getY());
 			world.setBlockState(highest.up(1), getDynamicLeavesState(4));
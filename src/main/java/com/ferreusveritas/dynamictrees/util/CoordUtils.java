@@ -49,8 +49,12 @@ public class CoordUtils {
 	 * @return The {@link BlockPos} of a suitable location.  The block is always air if successful otherwise it is {@link BlockPos.ORIGIN}
 	 */
 	public static BlockPos getRayTraceFruitPos(World world, Species species, BlockPos treePos, BlockPos branchPos) {
+		return getRayTraceFruitPos(world, species, treePos, branchPos, world.rand);
+	}
+	
+	public static BlockPos getRayTraceFruitPos(World world, Species species, BlockPos treePos, BlockPos branchPos, Random random) {
 
-		RayTraceResult result = branchRayTrace(world, species, treePos, branchPos, 45, 60, 4 + world.rand.nextInt(3));
+		RayTraceResult result = branchRayTrace(world, species, treePos, branchPos, 45, 60, 4 + random.nextInt(3), random);
 
 		if(result != null) {
 			BlockPos hitPos = result.getBlockPos();
@@ -69,6 +73,10 @@ public class CoordUtils {
 	
 	
 	public static RayTraceResult branchRayTrace(World world, Species species, BlockPos treePos, BlockPos branchPos, float spreadHor, float spreadVer, float distance) {
+		return branchRayTrace(world, species, treePos, branchPos, spreadHor, spreadVer, distance, world.rand);
+	}
+	
+	public static RayTraceResult branchRayTrace(World world, Species species, BlockPos treePos, BlockPos branchPos, float spreadHor, float spreadVer, float distance, Random random) {
 		treePos = new BlockPos(treePos.getX(), branchPos.getY(), treePos.getZ());//Make the tree pos level with the branch pos
 
 		Vec3d vOut = new Vec3d(branchPos.getX() - treePos.getX(), 0, branchPos.getZ() - treePos.getZ());
@@ -78,8 +86,8 @@ public class CoordUtils {
 			spreadHor = 180;
 		}
 		
-		float deltaYaw = (world.rand.nextFloat() * spreadHor * 2) - spreadHor;
-		float deltaPitch = (world.rand.nextFloat() * -spreadVer);// must be greater than -90 degrees(and less than 90) for the tangent function.
+		float deltaYaw = (random.nextFloat() * spreadHor * 2) - spreadHor;
+		float deltaPitch = (random.nextFloat() * -spreadVer);// must be greater than -90 degrees(and less than 90) for the tangent function.
 		vOut = vOut.normalize(). //Normalize to unit vector
 				addVector(0, Math.tan(Math.toRadians(deltaPitch)), 0). //Pitch the angle downward by 0 to spreadVer degrees
 				normalize(). //Re-normalize to unit vector
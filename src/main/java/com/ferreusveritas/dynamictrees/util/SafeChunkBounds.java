@@ -56,6 +56,24 @@ public class SafeChunkBounds {
 		rebuildChunkBorders();
 	}	
 	
+	/**
+	 * Copies the chunk validity of other bounds without querying the world again
+	 * 
+	 * @param other The bounds to copy
+	 * @param shrink The amount to shrink the borders next to invalid chunks
+	 */
+	public SafeChunkBounds(SafeChunkBounds other, int shrink) {
+		centerX = other.centerX;
+		centerZ = other.centerZ;
+		
+		for(Tile t : Tile.values()) {
+			chunkBounds[t.index] = other.chunkBounds[t.index] == BlockBounds.INVALID ? BlockBounds.INVALID : new BlockBounds(new ChunkPos(centerX + t.pos.getX(), centerZ + t.pos.getZ()));
+		}
+		
+		this.shrink = shrink;
+		rebuildChunkBorders();
+	}
+	
 	private void rebuildChunkBorders() {
 		for(Tile t : Tile.values()) {
 			BlockBounds curr = chunkBounds[t.index];
@@ -94,4 +112,16 @@ public class SafeChunkBounds {
 		return chunkBounds[p].inBounds(pos);
 	}
 	
+	/**
+	 * @return How many blocks can be stepped from the position in the direction while staying in bounds, up to max
+	 */
+	public int getReach(BlockPos pos, EnumFacing dir, int max) {
+		max = Math.min(max, 16);//Never look further than the neighboring chunks
+		int reach = 0;
+		while(reach < max && inBounds(pos.offset(dir, reach + 1))) {
+			reach++;
+		}
+		return reach;
+	}
+	
 }
\ No newline at end of file
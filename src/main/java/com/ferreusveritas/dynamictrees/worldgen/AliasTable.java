@@ -0,0 +1,100 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Picks weighted items in constant time using Vose's alias method.  Every slot of the table holds the
+ * probability of keeping it's own item and the index of the item to use otherwise.  A sample is a single slot
+ * lookup no matter how many items there are.
+ *
+ * @author ferreusveritas
+ */
+public class AliasTable<T> {
+
+	private final ArrayList<T> items = new ArrayList<T>();
+	private final ArrayList<Integer> weights = new ArrayList<Integer>();
+	private volatile float[] probability;//Written last when compiling
+	private int[] alias;
+
+	public AliasTable<T> add(T item, int weight) {
+		items.add(item);
+		weights.add(weight);
+		probability = null;//Needs compiling
+		return this;
+	}
+
+	public boolean isEmpty() {
+		return items.isEmpty();
+	}
+
+	private void compile() {
+		int n = items.size();
+		float[] prob = new float[n];
+		int[] ali = new int[n];
+		float[] scaled = new float[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int numSmall = 0;
+		int numLarge = 0;
+
+		long totalWeight = 0;
+		for(int weight : weights) {
+			totalWeight += weight;
+		}
+
+		for(int i = 0; i < n; i++) {
+			scaled[i] = weights.get(i) * n / (float) totalWeight;
+			if(scaled[i] < 1.0f) {
+				small[numSmall++] = i;
+			} else {
+				large[numLarge++] = i;
+			}
+		}
+
+		while(numSmall > 0 && numLarge > 0) {
+			int s = small[--numSmall];
+			int l = large[--numLarge];
+			prob[s] = scaled[s];
+			ali[s] = l;
+			scaled[l] = (scaled[l] + scaled[s]) - 1.0f;
+			if(scaled[l] < 1.0f) {
+				small[numSmall++] = l;
+			} else {
+				large[numLarge++] = l;
+			}
+		}
+
+		//Whatever is left over is only off from 1 by rounding error
+		while(numLarge > 0) {
+			prob[large[--numLarge]] = 1.0f;
+		}
+		while(numSmall > 0) {
+			prob[small[--numSmall]] = 1.0f;
+		}
+
+		alias = ali;
+		probability = prob;
+	}
+
+	/**
+	 * Picks an item using 64 random bits.  The high bits pick the slot and the low bits pick between the slot's
+	 * item and it's alias.
+	 */
+	public T sample(long bits) {
+		float[] prob = probability;
+		if(prob == null) {
+			compile();
+			prob = probability;
+		}
+
+		int slot = (int) (((bits >>> 32) * prob.length) >>> 32);
+		float coin = (bits & 0xFFFFFF) / (float) (1 << 24);
+		return items.get(coin < prob[slot] ? slot : alias[slot]);
+	}
+
+	public T sample(Random random) {
+		return sample(random.nextLong());
+	}
+
+}
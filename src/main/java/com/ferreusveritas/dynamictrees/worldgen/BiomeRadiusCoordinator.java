@@ -1,20 +1,34 @@
 package com.ferreusveritas.dynamictrees.worldgen;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 
 import com.ferreusveritas.dynamictrees.api.worldgen.IBiomeDensityProvider;
 import com.ferreusveritas.dynamictrees.util.MathHelper;
 
-import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.gen.NoiseGeneratorPerlin;
 
 public class BiomeRadiusCoordinator implements IRadiusCoordinator {
 
+	/** The radius fields of the most recently used chunks are kept */
+	private static final int maxCachedFields = 1024;
+	
 	NoiseGeneratorPerlin noiseGenerator;
 	IBiomeDensityProvider densityProvider;
 	
+	private final Map<Long, RadiusField> fields = new LinkedHashMap<Long, RadiusField>(256, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, RadiusField> eldest) {
+			return size() > maxCachedFields;
+		}
+	};
+	
 	public BiomeRadiusCoordinator(IBiomeDensityProvider densityProvider) {
 		noiseGenerator = new NoiseGeneratorPerlin(new Random(96), 1);
 		this.densityProvider = densityProvider;
@@ -22,23 +36,63 @@ public class BiomeRadiusCoordinator implements IRadiusCoordinator {
 
 	@Override
 	public int getRadiusAtCoords(World world, double x, double z) {
+		long start = WorldGenMetrics.start();
+		int ix = (int)x;
+		int iz = (int)z;
+		int radius = getField(world, ix >> 4, iz >> 4).getRadius(world, ix, iz);
+		WorldGenMetrics.record(WorldGenMetrics.Stage.RADIUS_FIELD, start);
+		return radius;
+	}
+	
+	private synchronized RadiusField getField(World world, int chunkX, int chunkZ) {
+		return fields.computeIfAbsent(ChunkPos.asLong(chunkX, chunkZ), k -> new RadiusField(world, chunkX, chunkZ));
+	}
+	
+	/**
+	 * Forgets all of the cached radius fields.  Must be called when the world is unloaded.
+	 */
+	public synchronized void clear() {
+		fields.clear();
+	}
+	
+	private int computeRadius(World world, Biome biome, int x, int z) {
 		double scale = 128;//Effectively scales up the noisemap
-		Biome biome = world.getBiome(new BlockPos((int)x, 0, (int)z));
 		double noiseDensity = (noiseGenerator.getValue(x / scale, z / scale) + 1D) / 2.0D;//Gives 0.0 to 1.0
-		double density = densityProvider.getDensity(biome, noiseDensity, world.rand);
+		Random random = WorldGenRandom.forPos(world.getSeed(), x, z);//Depends only on the seed and the coordinates so any thread gets the same radius
+		double density = densityProvider.getDensity(biome, noiseDensity, random);
 		double size = ((1.0 - density) * 9);//Size is the inverse of density(Gives 0 to 9)
 		
-		//Oh Joy.  Java Random isn't thread safe.  Which means that when minecraft creates multiple chunk generation
-		//tasks they can potentially all come up with the same number.  Let's just throw this large prime xor hack in there
-		//to get it to at least look like it's random.
-		int kindaRandom = (((int)x * 674365771) ^ ((int)z * 254326997)) >> 4;
-		
-		int shakelow = kindaRandom & 0x3;
-		int shakehigh = (kindaRandom >> 2) & 0x3;
+		int shakelow = random.nextInt(4);
+		int shakehigh = random.nextInt(4);
 		shakelow = (shakelow == 2) ? 1 : (shakelow == 3) ? 2 : 0;
 		shakehigh = (shakehigh == 2) ? 1 : (shakehigh == 3) ? 2 : 0;
 		
 		return MathHelper.clamp((int) size, 2 + shakelow, 8 - shakehigh);//Clamp to tree volume radius range
 	}
 	
+	/**
+	 * The radii of a single chunk.  The biomes of the whole chunk are fetched at once and each radius is
+	 * computed the first time it's asked for so that the solves of neighboring chunks can share them.
+	 */
+	private class RadiusField {
+		
+		private final Biome[] biomes;
+		private final byte[] radii = new byte[256];//Zero means not computed yet
+		
+		RadiusField(World world, int chunkX, int chunkZ) {
+			biomes = world.getBiomeProvider().getBiomes(null, chunkX << 4, chunkZ << 4, 16, 16, true);
+		}
+		
+		int getRadius(World world, int x, int z) {
+			int index = (z & 15) << 4 | (x & 15);
+			int radius = radii[index];
+			if(radius == 0) {
+				radius = computeRadius(world, biomes[index], x, z);
+				radii[index] = (byte) radius;
+			}
+			return radius;
+		}
+		
+	}
+	
 }
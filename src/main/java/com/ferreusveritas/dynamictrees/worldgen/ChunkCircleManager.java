@@ -1,18 +1,21 @@
 package com.ferreusveritas.dynamictrees.worldgen;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map.Entry;
+import java.util.Iterator;
 import java.util.Random;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.ferreusveritas.dynamictrees.ModConfigs;
+import com.ferreusveritas.dynamictrees.ModConstants;
 import com.ferreusveritas.dynamictrees.util.Circle;
 import com.ferreusveritas.dynamictrees.util.CoordUtils;
-import com.ferreusveritas.dynamictrees.util.Vec2i;
 
-import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3i;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.IChunkProvider;
 
 /**
  * Manages and creates all the Poisson discs in the world.
@@ -21,17 +24,27 @@ import net.minecraft.world.World;
  */
 public class ChunkCircleManager {
 
+	/** Beyond this many cached chunk circle sets the sets of chunks that aren't loaded are evicted */
+	public static final int maxCachedChunks = 16384;
+	
 	IRadiusCoordinator radiusCoordinator;
-	HashMap<Vec2i, ChunkCircleSet> chunkCircles;
+	ConcurrentHashMap<Long, CircleRegion> regions;
+	volatile CircleStore store;
+	ThreadLocal<CircleSolver> solvers = ThreadLocal.withInitial(CircleSolver::new);
+	final CircleTileLibrary tileLibrary = new CircleTileLibrary();
+	AtomicInteger cachedChunks = new AtomicInteger();
+	volatile int evictionThreshold = maxCachedChunks;
 
 	public ChunkCircleManager(IRadiusCoordinator radCoord) {
-		chunkCircles = new HashMap<Vec2i, ChunkCircleSet>();
+		regions = new ConcurrentHashMap<Long, CircleRegion>();
 		radiusCoordinator = radCoord;
 	}
 
 	/**
-	 * Function is synchronized to prevent chunk generation from grabbing circles while other circles are being
-	 * generated in the same area.  If this is not in place then circles will be generated over each other.
+	 * Only the regions that contain the chunk and it's 8 surrounding chunks are locked.  This prevents chunk
+	 * generation from grabbing circles while other circles are being generated in the same area.  If this is not
+	 * in place then circles will be generated over each other.  Chunk generation in unrelated areas of the world
+	 * can proceed in parallel.
 	 * 
 	 * @param world
 	 * @param random
@@ -39,152 +52,159 @@ public class ChunkCircleManager {
 	 * @param chunkZ
 	 * @return
 	 */
-	public synchronized ArrayList<Circle> getCircles(World world, Random random, int chunkX, int chunkZ) {
-		ChunkCircleSet cSet = getChunkCircleSet(chunkX, chunkZ);
-		if(cSet.generated) {
-			return getChunkCircles(chunkX, chunkZ);
-		} else {
-			return generateCircles(world, random, chunkX, chunkZ);
+	public ArrayList<Circle> getCircles(World world, Random random, int chunkX, int chunkZ) {
+		ArrayList<Circle> circles;
+		
+		if(store == null) {
+			initStore(world);
 		}
+		
+		ArrayList<CircleRegion> locked = lockRegions(chunkX - 1, chunkZ - 1, chunkX + 1, chunkZ + 1);
+		try {
+			ChunkCircleSet cSet = getChunkCircleSet(chunkX, chunkZ);
+			if(cSet != null && cSet.generated) {
+				circles = getChunkCircles(chunkX, chunkZ);
+			} else {
+				circles = generateCircles(world, random, chunkX, chunkZ);
+			}
+		} finally {
+			unlockRegions(locked);
+		}
+		
+		if(cachedChunks.get() > evictionThreshold) {
+			evictUnloaded(world);
+		}
+		
+		return circles;
 	}
 
+	private synchronized void initStore(World world) {
+		if(store == null) {
+			store = new CircleStore(new File(world.getSaveHandler().getWorldDirectory(), "data/" + ModConstants.MODID + "/circles"));
+		}
+	}
+	
 	/**
-	 * Use the circle and it's free arc angle to find the radius of the neighbor circle
-	 * 
-	 * @param world
-	 * @param cA
-	 * @return radius of the circle
+	 * Writes any circle data that's waiting in the side store out to disk.
 	 */
-	private int getRadiusAtCircleTangent(World world, Circle cA) {
-		float angle = (float)cA.getFreeAngle();
-
-		double x = cA.x + (MathHelper.sin(angle) * cA.radius * 1.5);
-		double z = cA.z + (MathHelper.cos(angle) * cA.radius * 1.5);
-
-		return radiusCoordinator.getRadiusAtCoords(world, x, z);
+	public void flush() {
+		if(store != null) {
+			store.flush();
+		}
 	}
 	
-	public ArrayList<Circle> generateCircles(World world, Random random, int chunkX, int chunkZ) {
-		
-		ArrayList<Circle> circles = new ArrayList<Circle>(64);//64 is above the typical range to expect for 9 chunks
-		ArrayList<Circle> unsolvedCircles = new ArrayList<Circle>(64);
-		
-		//Collect already solved circles from surrounding chunks
-		for(Vec3i dir: CoordUtils.surround) {
-			getChunkCircles(circles, chunkX + dir.getX(), chunkZ + dir.getZ());
+	private CircleRegion getRegion(int chunkX, int chunkZ) {
+		return regions.computeIfAbsent(ChunkPos.asLong(chunkX >> CircleRegion.SHIFT, chunkZ >> CircleRegion.SHIFT), k -> new CircleRegion());
+	}
+	
+	/**
+	 * Locks the region containing the chunk.  A region may be evicted while we wait on it's lock so we make
+	 * sure that the region we end up holding is still the one in the map.
+	 * 
+	 * @return the locked region
+	 */
+	private CircleRegion lockRegion(int chunkX, int chunkZ) {
+		long key = ChunkPos.asLong(chunkX >> CircleRegion.SHIFT, chunkZ >> CircleRegion.SHIFT);
+		while(true) {
+			CircleRegion region = regions.computeIfAbsent(key, k -> new CircleRegion());
+			region.lock.lock();
+			if(regions.get(key) == region) {
+				return region;
+			}
+			region.lock.unlock();
 		}
+	}
+	
+	/**
+	 * Evicts the circle sets of chunks that aren't loaded.  The circles of a chunk are written to the chunk's NBT
+	 * when it's saved and generated circles are written back to the side store so that they can be read back
+	 * when they're needed again.  Regions that are busy with generation are skipped and regions that end up empty
+	 * are dropped.
+	 * 
+	 * @param world
+	 */
+	private void evictUnloaded(World world) {
+		IChunkProvider chunkProvider = world.getChunkProvider();
 		
-		int chunkXStart = chunkX << 4;
-		int chunkZStart = chunkZ << 4;
-
-		for(Circle c: circles) {
-			c.edgeMask(chunkXStart, chunkZStart);//Do edge masking
+		for(Iterator<CircleRegion> iter = regions.values().iterator(); iter.hasNext();) {
+			CircleRegion region = iter.next();
+			if(region.lock.tryLock()) {
+				try {
+					int evicted = region.chunkCircles.removeIf((key, cSet) -> {
+						int chunkX = (int)(long)key;
+						int chunkZ = (int)(key >> 32);
+						if(chunkProvider.getLoadedChunk(chunkX, chunkZ) == null) {
+							if(cSet.generated) {
+								store.write(chunkX, chunkZ, cSet.getCircleData());
+							}
+							return true;
+						}
+						return false;
+					});
+					cachedChunks.addAndGet(-evicted);
+					if(region.chunkCircles.isEmpty()) {
+						iter.remove();
+					}
+				} finally {
+					region.lock.unlock();
+				}
+			}
 		}
 		
-		//Mask out circles against one another
-		for(int i = 0; i < circles.size() - 1; i++) {
-			for(int j = i + 1; j < circles.size(); j++) {
-				CircleHelper.maskCircles(circles.get(i), circles.get(j));
+		//Everything that remains is in use so don't bother trying again until the cache has grown substantially
+		evictionThreshold = Math.max(maxCachedChunks, cachedChunks.get() * 2);
+	}
+	
+	/**
+	 * Locks all of the regions that overlap the chunk area.  Regions are always locked in the same order(Z then X)
+	 * so that two overlapping generations can't deadlock one another.
+	 * 
+	 * @return the locked regions in the order they were locked
+	 */
+	private ArrayList<CircleRegion> lockRegions(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+		ArrayList<CircleRegion> locked = new ArrayList<CircleRegion>(4);
+		for(int rz = minChunkZ >> CircleRegion.SHIFT; rz <= maxChunkZ >> CircleRegion.SHIFT; rz++) {
+			for(int rx = minChunkX >> CircleRegion.SHIFT; rx <= maxChunkX >> CircleRegion.SHIFT; rx++) {
+				locked.add(lockRegion(rx << CircleRegion.SHIFT, rz << CircleRegion.SHIFT));
 			}
 		}
-		
-		//Handle no existing circles by creating a single circle to build off of
-		if(circles.size() == 0) {
-			int x = chunkXStart + random.nextInt(16);
-			int z = chunkZStart + random.nextInt(16);
-			int radius = radiusCoordinator.getRadiusAtCoords(world, x, z);
-			Circle rootCircle = new Circle(x, z, radius);
-			rootCircle.real = true;
-			circles.add(rootCircle);
+		return locked;
+	}
+	
+	private void unlockRegions(ArrayList<CircleRegion> locked) {
+		for(int i = locked.size() - 1; i >= 0; i--) {
+			locked.get(i).lock.unlock();
 		}
+	}
+	
+	/**
+	 * Must be called with the regions surrounding the chunk locked
+	 */
+	private ArrayList<Circle> generateCircles(World world, Random random, int chunkX, int chunkZ) {
 		
-		//Gather the unsolved circles into a list
-		CircleHelper.gatherUnsolved(unsolvedCircles, circles);
-		
-		int count = 0;
+		ArrayList<Circle> circles;
 		
-		//Keep solving all unsolved circles until there aren't any more to solve.
-		while(!unsolvedCircles.isEmpty()) {
-			Circle master = unsolvedCircles.get(0);//Any circle will do.  May as well be the first.
-			
-			int radius = getRadiusAtCircleTangent(world, master);
-			
-			Circle slave = CircleHelper.findSecondCircle(master, radius);//Create a second circle tangential to the master circle.
-			Vec2i slavePos = new Vec2i(slave);//Cache slave position
-			
-			//Mask off the master so it won't happen again.
-			master.arc |= 1 << master.getFreeBit();//Clear specific arc bit for good measure
-			CircleHelper.maskCircles(master, slave, true);
-
-			//Create a list of existing circles that are intersecting with this circle.  List is ordered by penetration depth.
-			int i = 0;
-			TreeMap<Integer, Circle> intersecting = new TreeMap<Integer, Circle>();
-			for(Circle c: circles) {
-				if(slave.doCirclesIntersectPadding(c)) {
-					int depth = 16 + (int)c.circlePenetration(slave);
-					intersecting.put(depth << 8 | i++, c);
-				}
-			}
-			
-			//Run through all of the circles that were intersecting
-			for(Entry<Integer, Circle> entry: intersecting.entrySet()) {
-				Circle master1 = master;//Cache master value because we do swapping later
-				Circle master2 = entry.getValue();
-				
-				//Determine handedness of 3rd circle interaction
-				int cross = Vec2i.crossProduct(new Vec2i(slavePos).sub(master1),new Vec2i(master2).sub(master1));
-				if(cross < 0){//Swap circles if the cross product is negative
-					Circle temp = master2;
-					master2 = master1;
-					master1 = temp;
-				}
-				
-				slave = CircleHelper.findThirdCircle(master1, master2, radius);//Attempt to triangulate a circle position that is touching tangentially to both master circles
-				if(slave != null) {//Found a 3rd circle candidate
-					for(int ci = 0; ci < circles.size(); ci++) {
-						Circle c = circles.get(ci);
-						if(slave.doCirclesIntersect(c)){//See if this new circle intersects with any of the existing circles. If it does then..
-							if(c.real || (!c.real && !slave.isInCenterChunk(chunkXStart, chunkZStart)) ) {
-								slave = null;//Discard the circle because it's intersecting with an existing real circle
-								break;//We needn't continue since we've proven that the circle intersects with any circle
-							} else {//The overlapping circle is not real.. but the slave circle is.
-								CircleHelper.fastRemove(circles, ci--);//Delete the offending non-real circle. The order of the circles is unimportant
-							} 
-						}
-					}
-				}
-				
-				if(slave != null) {
-					break;//We found a viable circle.. time to move on
-				}
-			}
-			
-			if(slave != null) {//The circle has passed all of the non-intersection tests.  Let's add it to the list of circles
-				slave.edgeMask(chunkXStart, chunkZStart);//Set the proper mask for whatever chunk this circle resides.
-				slave.real = slave.isInCenterChunk(chunkXStart, chunkZStart);//Only circles created in the center chunk are real
-				unsolvedCircles.add(slave);//The new circle is necessarily unsolved and we need it in this list for the next step.
-				CircleHelper.solveCircles(unsolvedCircles, circles);//run all of the unsolved circles again
-				circles.add(slave);//add the new circle to the full list
-			}
-			
-			CircleHelper.gatherUnsolved(unsolvedCircles, circles);//List up the remaining unsolved circles and try again
+		if(ModConfigs.worldGenCircleTiles) {
+			circles = getTiledCircles(world, chunkX, chunkZ);
+		} else {
+			CircleSolver solver = solvers.get();
+			circles = solver.begin(chunkX, chunkZ);
 			
-			//For debug purposes
-			if(++count > 64 && !unsolvedCircles.isEmpty()) {//It shouldn't over take 64 iterations to solve all of the circles
-				System.err.println("-----" + unsolvedCircles.size() + " unsolved circles-----");
-				System.err.println("@ chunk x:" + chunkX + ", z:" + chunkZ);
-				System.err.println("after " + count + " iterations" );
-				for(Circle c: circles) {
-					System.err.println((c.hasFreeAngles() ? "->" : "  ") +  c);
-				}
-				CircleDebug.outputCirclesToPng(circles, chunkX, chunkZ, "");
-				break;//Something went terribly wrong and we shouldn't hang the system for it.
+			//Collect already solved circles from surrounding chunks
+			for(Vec3i dir: CoordUtils.surround) {
+				getChunkCircles(circles, chunkX + dir.getX(), chunkZ + dir.getZ());
 			}
 			
+			long start = WorldGenMetrics.start();
+			solver.solve(world, random, radiusCoordinator, chunkX, chunkZ);//A failed solve still leaves us with the circles that were solved
+			WorldGenMetrics.record(WorldGenMetrics.Stage.CIRCLE_SOLVE, start);
 		}
 		
+		int chunkXStart = chunkX << 4;
+		int chunkZStart = chunkZ << 4;
+		
 		//Add circles to circle set
-		ChunkCircleSet cSet = getChunkCircleSet(chunkX, chunkZ);
+		ChunkCircleSet cSet = getOrCreateChunkCircleSet(chunkX, chunkZ);
 		cSet.generated = true;
 		
 		for(Circle c: circles) {
@@ -192,35 +212,125 @@ public class ChunkCircleManager {
 				cSet.addCircle(c);
 			}
 		}
-		circles.clear();
 		
-		return cSet.getCircles(circles, chunkX, chunkZ);
+		store.write(chunkX, chunkZ, cSet.getCircleData());//The circles are safe even if the chunk never gets saved
+		
+		return cSet.getCircles(new ArrayList<Circle>(), chunkX, chunkZ);
 	}
 	
+	/**
+	 * Takes the circles of the chunk from the tile library.  Circles that run into circles already solved for
+	 * the surrounding chunks, as happens where a world switched modes, are left out.
+	 * 
+	 * Must be called with the regions surrounding the chunk locked
+	 */
+	private ArrayList<Circle> getTiledCircles(World world, int chunkX, int chunkZ) {
+		long start = WorldGenMetrics.start();
+		ArrayList<Circle> circles = tileLibrary.getCircles(world, radiusCoordinator, chunkX, chunkZ);
+		WorldGenMetrics.record(WorldGenMetrics.Stage.CIRCLE_SOLVE, start);
+		
+		ArrayList<Circle> neighbors = new ArrayList<Circle>();
+		for(Vec3i dir: CoordUtils.surround) {
+			ChunkCircleSet cSet = getChunkCircleSet(chunkX + dir.getX(), chunkZ + dir.getZ());
+			if(cSet != null && cSet.generated) {
+				cSet.getCircles(neighbors, chunkX + dir.getX(), chunkZ + dir.getZ());
+			}
+		}
+		
+		if(!neighbors.isEmpty()) {
+			circles.removeIf(c -> CircleTileLibrary.collides(c, neighbors));
+		}
+		
+		return circles;
+	}
+	
+	/**
+	 * Must be called with the region containing the chunk locked
+	 */
 	private ChunkCircleSet getChunkCircleSet(int chunkX, int chunkZ) {
-		Vec2i key = new Vec2i(chunkX, chunkZ);
-		ChunkCircleSet cSet;
+		CircleRegion region = getRegion(chunkX, chunkZ);
+		ChunkCircleSet cSet = region.getChunkCircleSet(chunkX, chunkZ);
 		
-		if(chunkCircles.containsKey(key)) {
-			cSet = chunkCircles.get(key);
-		} else {
-			cSet = new ChunkCircleSet();
-			chunkCircles.put(key, cSet);
+		if(cSet == null && store != null) {//Fall back to the side store
+			byte[] circleData = store.read(chunkX, chunkZ);
+			if(circleData != null) {
+				cSet = new ChunkCircleSet(circleData);
+				region.chunkCircles.put(ChunkPos.asLong(chunkX, chunkZ), cSet);
+				cachedChunks.incrementAndGet();
+			}
 		}
 		
 		return cSet;
 	}
 	
+	/**
+	 * Must be called with the region containing the chunk locked
+	 */
+	private ChunkCircleSet getOrCreateChunkCircleSet(int chunkX, int chunkZ) {
+		CircleRegion region = getRegion(chunkX, chunkZ);
+		ChunkCircleSet cSet = region.getChunkCircleSet(chunkX, chunkZ);
+		
+		if(cSet == null) {
+			cSet = region.getOrCreateChunkCircleSet(chunkX, chunkZ);
+			cachedChunks.incrementAndGet();
+		}
+		
+		return cSet;
+	}
+	
+	/**
+	 * @return true if the circles of the chunk have already been solved
+	 */
+	public boolean isSolved(int chunkX, int chunkZ) {
+		CircleRegion region = lockRegion(chunkX, chunkZ);
+		try {
+			ChunkCircleSet cSet = getChunkCircleSet(chunkX, chunkZ);
+			return cSet != null && cSet.generated;
+		} finally {
+			region.lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return true if circle data for the chunk is available either from it's NBT or from solving it
+	 */
+	public boolean hasCircleData(int chunkX, int chunkZ) {
+		CircleRegion region = lockRegion(chunkX, chunkZ);
+		try {
+			return getChunkCircleSet(chunkX, chunkZ) != null;
+		} finally {
+			region.lock.unlock();
+		}
+	}
+	
 	public byte[] getChunkCircleData(int chunkX, int chunkZ) {
-		return getChunkCircleSet(chunkX, chunkZ).getCircleData();
+		CircleRegion region = lockRegion(chunkX, chunkZ);
+		try {
+			ChunkCircleSet cSet = getChunkCircleSet(chunkX, chunkZ);
+			return cSet != null ? cSet.getCircleData().clone() : new byte[16];
+		} finally {
+			region.lock.unlock();
+		}
 	}
 	
 	public void setChunkCircleData(int chunkX, int chunkZ, byte[] circleData) {
-		getChunkCircleSet(chunkX, chunkZ).setCircleData(circleData);
+		CircleRegion region = lockRegion(chunkX, chunkZ);
+		try {
+			getOrCreateChunkCircleSet(chunkX, chunkZ).setCircleData(circleData);
+		} finally {
+			region.lock.unlock();
+		}
 	}
 	
 	public void unloadChunkCircleData(int chunkX, int chunkZ) {
-		chunkCircles.remove(new Vec2i(chunkX, chunkZ));
+		CircleRegion region = lockRegion(chunkX, chunkZ);
+		try {
+			if(region.removeChunkCircleSet(chunkX, chunkZ)) {
+				cachedChunks.decrementAndGet();
+			}
+		} finally {
+			region.lock.unlock();
+		}
 	}
 	
 	private ArrayList<Circle> getChunkCircles(int chunkX, int chunkZ) {
@@ -229,7 +339,9 @@ public class ChunkCircleManager {
 	
 	private ArrayList<Circle> getChunkCircles(ArrayList<Circle> circles, int chunkX, int chunkZ) {
 		ChunkCircleSet cSet = getChunkCircleSet(chunkX, chunkZ);
-		cSet.getCircles(circles, chunkX, chunkZ);
+		if(cSet != null) {
+			cSet.getCircles(circles, chunkX, chunkZ);
+		}
 		return circles;
 	}
 	
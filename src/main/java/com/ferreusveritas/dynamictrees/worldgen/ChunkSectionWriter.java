@@ -0,0 +1,204 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraftforge.fml.relauncher.ReflectionHelper;
+
+/**
+ * Writes block states straight into the sections of chunks that are being populated.  Going through
+ * {@link World#setBlockState} relights every block that changes it's opacity which is most of the cost of
+ * placing a tree.  Here the heightmaps and lighting are brought up to date once for every column that was
+ * written to when the writer is flushed.
+ *
+ * Written blocks can be read back from the world right away.  Blocks are never notified of the change so
+ * this is only suitable for worldgen.  Blocks with tile entities always go through the world.  Changes to chunks
+ * that are already populated, and so may have been sent to players, are sent to the players watching them when
+ * the writer is flushed.
+ *
+ * @author ferreusveritas
+ */
+public class ChunkSectionWriter {
+
+	private static final Field precipitationHeightMap = ReflectionHelper.findField(Chunk.class, "precipitationHeightMap", "field_76638_b");
+
+	private final World world;
+	private final HashMap<Long, ChunkColumns> chunks = new HashMap<Long, ChunkColumns>();
+	private ChunkColumns last;
+
+	public ChunkSectionWriter(World world) {
+		this.world = world;
+	}
+
+	/** The columns of a chunk that have been written to */
+	private static class ChunkColumns {
+		final Chunk chunk;
+		final int[] tops = new int[256];//The highest written block of each column plus one.  Zero when untouched.
+		boolean newSection = false;
+		final ArrayList<BlockPos> written;//Only kept for chunks that players may already have
+
+		ChunkColumns(Chunk chunk) {
+			this.chunk = chunk;
+			this.written = chunk.isTerrainPopulated() ? new ArrayList<BlockPos>() : null;
+		}
+	}
+
+	private ChunkColumns getColumns(int chunkX, int chunkZ) {
+		if(last != null && last.chunk.x == chunkX && last.chunk.z == chunkZ) {
+			return last;
+		}
+		last = chunks.computeIfAbsent(ChunkPos.asLong(chunkX, chunkZ), k -> new ChunkColumns(world.getChunkFromChunkCoords(chunkX, chunkZ)));
+		return last;
+	}
+
+	public void setBlockState(BlockPos pos, IBlockState state) {
+		int y = pos.getY();
+		if(y < 0 || y >= 256) {
+			return;
+		}
+
+		ChunkColumns columns = getColumns(pos.getX() >> 4, pos.getZ() >> 4);
+		ExtendedBlockStorage[] storage = columns.chunk.getBlockStorageArray();
+		ExtendedBlockStorage section = storage[y >> 4];
+
+		IBlockState oldState = section != Chunk.NULL_BLOCK_STORAGE ? section.get(pos.getX() & 15, y & 15, pos.getZ() & 15) : null;
+		if(state.getBlock().hasTileEntity(state) || (oldState != null && oldState.getBlock().hasTileEntity(oldState))) {
+			world.setBlockState(pos, state, 2);
+			return;
+		}
+
+		if(section == Chunk.NULL_BLOCK_STORAGE) {
+			section = new ExtendedBlockStorage(y >> 4 << 4, world.provider.hasSkyLight());
+			storage[y >> 4] = section;
+			columns.newSection = true;
+		}
+
+		section.set(pos.getX() & 15, y & 15, pos.getZ() & 15, state);
+
+		int index = (pos.getZ() & 15) << 4 | (pos.getX() & 15);
+		if(y + 1 > columns.tops[index]) {
+			columns.tops[index] = y + 1;
+		}
+
+		if(columns.written != null) {
+			columns.written.add(pos.toImmutable());
+		}
+	}
+
+	/**
+	 * Brings the heightmaps and lighting up to date for every column that was written to
+	 */
+	public void flush() {
+		for(Map.Entry<Long, ChunkColumns> entry : chunks.entrySet()) {
+			ChunkColumns columns = entry.getValue();
+			Chunk chunk = columns.chunk;
+			int[] heightMap = chunk.getHeightMap();
+			int[] oldHeights = heightMap.clone();
+
+			if(columns.newSection) {
+				chunk.generateSkylightMap();//Fresh sections have no sky light at all and this also rebuilds the heightmap
+			} else {
+				updateHeights(columns);
+			}
+
+			for(int index = 0; index < 256; index++) {
+				int top = columns.tops[index];
+				if(top == 0) {
+					continue;
+				}
+
+				int x = chunk.x << 4 | (index & 15);
+				int z = chunk.z << 4 | index >> 4;
+				if(heightMap[index] > oldHeights[index] && world.provider.hasSkyLight()) {
+					relightSky(chunk, x, z, oldHeights[index], heightMap[index]);
+				} else {
+					world.checkLight(new BlockPos(x, top - 1, z));//One relight per column
+				}
+			}
+
+			if(columns.written != null) {
+				for(BlockPos pos : columns.written) {
+					IBlockState state = chunk.getBlockState(pos);
+					world.notifyBlockUpdate(pos, state, state, 2);
+				}
+			}
+
+			chunk.markDirty();
+		}
+
+		chunks.clear();
+		last = null;
+	}
+
+	/**
+	 * Raises the heightmap of every written column to it's highest block that blocks light and invalidates the
+	 * precipitation heights of those columns.  Written blocks only ever raise the heightmap.
+	 */
+	private void updateHeights(ChunkColumns columns) {
+		Chunk chunk = columns.chunk;
+		int[] heightMap = chunk.getHeightMap();
+		int[] precipitation = getPrecipitationHeightMap(chunk);
+		BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+		for(int index = 0; index < 256; index++) {
+			int top = columns.tops[index];
+			if(top == 0) {
+				continue;
+			}
+
+			for(int y = top - 1; y >= heightMap[index]; y--) {
+				pos.setPos(chunk.x << 4 | (index & 15), y, chunk.z << 4 | index >> 4);
+				if(chunk.getBlockState(pos).getLightOpacity(world, pos) > 0) {
+					heightMap[index] = y + 1;
+					break;
+				}
+			}
+
+			if(precipitation != null) {
+				precipitation[index] = -999;//Recalculated by the chunk when it's next asked for
+			}
+		}
+	}
+
+	/**
+	 * Relights a column whose heightmap was raised the same way {@link Chunk} does when a block is placed above
+	 * it's heightmap.  The sky light that used to fall straight down the column is removed and then the light is
+	 * recalculated from the sides for the column and it's neighbors.
+	 */
+	private void relightSky(Chunk chunk, int x, int z, int oldHeight, int newHeight) {
+		ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+		for(int y = oldHeight; y < newHeight; y++) {
+			ExtendedBlockStorage section = storage[y >> 4];
+			if(section != Chunk.NULL_BLOCK_STORAGE) {
+				section.setSkyLight(x & 15, y & 15, z & 15, 0);
+			}
+		}
+
+		BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+		for(int y = newHeight - 1; y >= oldHeight; y--) {
+			world.checkLightFor(EnumSkyBlock.SKY, pos.setPos(x, y, z));
+			world.checkLightFor(EnumSkyBlock.SKY, pos.setPos(x - 1, y, z));
+			world.checkLightFor(EnumSkyBlock.SKY, pos.setPos(x + 1, y, z));
+			world.checkLightFor(EnumSkyBlock.SKY, pos.setPos(x, y, z - 1));
+			world.checkLightFor(EnumSkyBlock.SKY, pos.setPos(x, y, z + 1));
+		}
+	}
+
+	private static int[] getPrecipitationHeightMap(Chunk chunk) {
+		try {
+			return (int[]) precipitationHeightMap.get(chunk);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.UUID;
+
+import com.ferreusveritas.dynamictrees.ModConfigs;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * Solves the Poisson disc circles of chunks ahead of the players so that population only has to look up
+ * circles that are already finished.  Whenever a player enters a new chunk the chunks out to a configurable
+ * distance beyond the view distance are queued from the inside out.  A slice of every server tick is then spent
+ * working through the queue.
+ *
+ * Pre-solving goes through {@link ChunkCircleManager#getCircles} so it follows exactly the same rules as lazy
+ * solving.  Each chunk is solved with the same {@link WorldGenRandom} stream that population would use.  Chunks
+ * with circles that can't be known, such as populated chunks whose circles aren't loaded, are left alone along
+ * with their neighbors so that no seams are created.
+ *
+ * @author ferreusveritas
+ */
+public class CirclePresolver {
+
+	/** Queued chunks beyond this number are dropped, oldest first */
+	private static final int maxQueued = 16384;
+
+	private final ChunkCircleManager circleMan;
+	private final LinkedHashSet<Long> queue = new LinkedHashSet<Long>();
+	private final HashMap<UUID, Long> lastPlayerChunk = new HashMap<UUID, Long>();
+
+	public CirclePresolver(ChunkCircleManager circleMan) {
+		this.circleMan = circleMan;
+	}
+
+	/**
+	 * Called at the end of every world tick
+	 *
+	 * @param world
+	 */
+	public void update(WorldServer world) {
+		if(ModConfigs.worldGenPresolveRadius > 0) {
+			queueAroundPlayers(world);
+			process(world, ModConfigs.worldGenPresolveBudget * 1000000L);
+		}
+	}
+
+	private void queueAroundPlayers(WorldServer world) {
+		int viewDistance = world.getMinecraftServer().getPlayerList().getViewDistance();
+		int maxRing = viewDistance + ModConfigs.worldGenPresolveRadius;
+
+		for(EntityPlayer player: world.playerEntities) {
+			int playerChunkX = MathHelper.floor(player.posX) >> 4;
+			int playerChunkZ = MathHelper.floor(player.posZ) >> 4;
+			Long chunkKey = ChunkPos.asLong(playerChunkX, playerChunkZ);
+
+			if(!chunkKey.equals(lastPlayerChunk.put(player.getUniqueID(), chunkKey))) {
+				//The chunks well inside of the view distance are already populated
+				for(int ring = Math.max(0, viewDistance - 1); ring <= maxRing; ring++) {
+					queueRing(playerChunkX, playerChunkZ, ring);
+				}
+			}
+		}
+
+		Iterator<Long> iter = queue.iterator();
+		for(int excess = queue.size() - maxQueued; excess > 0; excess--) {
+			iter.next();
+			iter.remove();
+		}
+	}
+
+	private void queueRing(int centerX, int centerZ, int ring) {
+		if(ring == 0) {
+			queue.add(ChunkPos.asLong(centerX, centerZ));
+			return;
+		}
+
+		for(int i = -ring; i <= ring; i++) {
+			queue.add(ChunkPos.asLong(centerX + i, centerZ - ring));
+			queue.add(ChunkPos.asLong(centerX + i, centerZ + ring));
+		}
+		for(int i = -ring + 1; i < ring; i++) {
+			queue.add(ChunkPos.asLong(centerX - ring, centerZ + i));
+			queue.add(ChunkPos.asLong(centerX + ring, centerZ + i));
+		}
+	}
+
+	private void process(WorldServer world, long budgetNanos) {
+		long start = System.nanoTime();
+
+		Iterator<Long> iter = queue.iterator();
+		while(iter.hasNext() && System.nanoTime() - start < budgetNanos) {
+			long key = iter.next();
+			iter.remove();
+
+			int chunkX = (int)key;
+			int chunkZ = (int)(key >> 32);
+
+			if(canPresolve(world, chunkX, chunkZ)) {
+				circleMan.getCircles(world, TreeGenerator.circleRandom(world, chunkX, chunkZ), chunkX, chunkZ);
+			}
+		}
+	}
+
+	/**
+	 * A chunk can be pre-solved if it hasn't been populated yet and the circles of all of it's populated
+	 * neighbors are known.
+	 */
+	private boolean canPresolve(WorldServer world, int chunkX, int chunkZ) {
+		if(circleMan.isSolved(chunkX, chunkZ) || mayBePopulated(world, chunkX, chunkZ)) {
+			return false;
+		}
+
+		for(int dz = -1; dz <= 1; dz++) {
+			for(int dx = -1; dx <= 1; dx++) {
+				if((dx != 0 || dz != 0) && mayBePopulated(world, chunkX + dx, chunkZ + dz) && !circleMan.hasCircleData(chunkX + dx, chunkZ + dz)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * A chunk that exists but isn't loaded can't be checked without loading it so it's assumed to be populated.
+	 */
+	private boolean mayBePopulated(WorldServer world, int chunkX, int chunkZ) {
+		Chunk chunk = world.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+		if(chunk != null) {
+			return chunk.isTerrainPopulated();
+		}
+		return world.isChunkGeneratedAt(chunkX, chunkZ);
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * A square area of chunks with it's own set of circles and it's own lock.  Circle generation only locks the
+ * regions that it touches so that unrelated areas of the world can be generated in parallel.
+ *
+ * All of the accessors must be called with the lock held.
+ *
+ * @author ferreusveritas
+ */
+class CircleRegion {
+
+	/** Regions are 32x32 chunks */
+	public static final int SHIFT = 5;
+
+	final ReentrantLock lock = new ReentrantLock();
+	final LongCircleTable chunkCircles = new LongCircleTable();
+
+	/**
+	 * @return The circle set for the chunk or null if there isn't one
+	 */
+	ChunkCircleSet getChunkCircleSet(int chunkX, int chunkZ) {
+		return chunkCircles.get(ChunkPos.asLong(chunkX, chunkZ));
+	}
+
+	ChunkCircleSet getOrCreateChunkCircleSet(int chunkX, int chunkZ) {
+		long key = ChunkPos.asLong(chunkX, chunkZ);
+		ChunkCircleSet cSet = chunkCircles.get(key);
+
+		if(cSet == null) {
+			cSet = new ChunkCircleSet();
+			chunkCircles.put(key, cSet);
+		}
+
+		return cSet;
+	}
+
+	/**
+	 * @return true if a circle set was removed
+	 */
+	boolean removeChunkCircleSet(int chunkX, int chunkZ) {
+		return chunkCircles.remove(ChunkPos.asLong(chunkX, chunkZ)) != null;
+	}
+
+}
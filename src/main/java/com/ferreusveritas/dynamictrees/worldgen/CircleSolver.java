@@ -0,0 +1,275 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ferreusveritas.dynamictrees.ModConfigs;
+import com.ferreusveritas.dynamictrees.util.Circle;
+import com.ferreusveritas.dynamictrees.util.Vec2i;
+
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+
+/**
+ * Packs Poisson disc circles into the center chunk of a 3x3 chunk area.  The circles are binned into a
+ * spatial grid of 8x8 block cells so that finding the neighbors of a circle only looks at the handful of cells
+ * around it instead of every circle in the area.  All of the working buffers are kept between solves so a
+ * solver should be reused, one per thread.
+ *
+ * @author ferreusveritas
+ */
+public class CircleSolver {
+
+	/** The number of solves that gave up before every circle was solved */
+	public static final AtomicInteger failedSolves = new AtomicInteger();
+
+	private static final int CELL_SHIFT = 3;
+	private static final int GRID_DIM = 48 >> CELL_SHIFT;
+
+	/** Circles within this distance beyond their radius may be adjacent to or intersect with one another */
+	private static final int REACH = 8 + 2;
+
+	private final ArrayList<Circle> circles = new ArrayList<Circle>(64);//64 is above the typical range to expect for 9 chunks
+	private final ArrayList<Circle> unsolved = new ArrayList<Circle>(64);
+	private final ArrayList<Circle> nearby = new ArrayList<Circle>(32);
+	private final ArrayList<Circle> candidates = new ArrayList<Circle>(32);
+	private final ArrayList<Circle>[] grid;
+	private long[] candidateKeys = new long[32];
+	private final Vec2i slavePos = new Vec2i();
+	private final Vec2i delta1 = new Vec2i();
+	private final Vec2i delta2 = new Vec2i();
+	private int originX;
+	private int originZ;
+
+	@SuppressWarnings("unchecked")
+	public CircleSolver() {
+		grid = new ArrayList[GRID_DIM * GRID_DIM];
+		for(int i = 0; i < grid.length; i++) {
+			grid[i] = new ArrayList<Circle>(8);
+		}
+	}
+
+	/**
+	 * Clears the solver for a new chunk.  The already solved circles of the surrounding chunks should then be
+	 * added to {@link #getCircles()} before solving.
+	 *
+	 * @return the list of circles to fill
+	 */
+	public ArrayList<Circle> begin(int chunkX, int chunkZ) {
+		circles.clear();
+		unsolved.clear();
+		for(ArrayList<Circle> cell : grid) {
+			cell.clear();
+		}
+		originX = (chunkX - 1) << 4;
+		originZ = (chunkZ - 1) << 4;
+		return circles;
+	}
+
+	public ArrayList<Circle> getCircles() {
+		return circles;
+	}
+
+	private int cellX(int x) {
+		return MathHelper.clamp((x - originX) >> CELL_SHIFT, 0, GRID_DIM - 1);
+	}
+
+	private int cellZ(int z) {
+		return MathHelper.clamp((z - originZ) >> CELL_SHIFT, 0, GRID_DIM - 1);
+	}
+
+	private void addToGrid(Circle c) {
+		grid[cellZ(c.z) * GRID_DIM + cellX(c.x)].add(c);
+	}
+
+	private void removeFromGrid(Circle c) {
+		ArrayList<Circle> cell = grid[cellZ(c.z) * GRID_DIM + cellX(c.x)];
+		for(int i = 0; i < cell.size(); i++) {
+			if(cell.get(i) == c) {
+				CircleHelper.fastRemove(cell, i);
+				return;
+			}
+		}
+	}
+
+	private void removeCircle(Circle c) {
+		removeFromGrid(c);
+		for(int i = 0; i < circles.size(); i++) {
+			if(circles.get(i) == c) {
+				CircleHelper.fastRemove(circles, i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Gathers the circles that are close enough to the circle to touch it.  Circles pushed out of the 3x3 area
+	 * are clamped to the edge cells so they're still found.
+	 */
+	private ArrayList<Circle> gatherNearby(Circle c) {
+		nearby.clear();
+		int reach = c.radius + REACH;
+		int maxX = cellX(c.x + reach);
+		int maxZ = cellZ(c.z + reach);
+		for(int cz = cellZ(c.z - reach); cz <= maxZ; cz++) {
+			for(int cx = cellX(c.x - reach); cx <= maxX; cx++) {
+				for(Circle n : grid[cz * GRID_DIM + cx]) {
+					if(n != c) {
+						nearby.add(n);
+					}
+				}
+			}
+		}
+		return nearby;
+	}
+
+	/**
+	 * Solves the circles for the center chunk.  A solve that runs past the iteration limit is abandoned and the
+	 * circles solved so far are kept.
+	 *
+	 * @return true if every circle was solved
+	 */
+	public boolean solve(World world, Random random, IRadiusCoordinator radiusCoordinator, int chunkX, int chunkZ) {
+		int chunkXStart = chunkX << 4;
+		int chunkZStart = chunkZ << 4;
+
+		//Do edge masking and mask out circles against the ones before them
+		for(Circle c: circles) {
+			c.edgeMask(chunkXStart, chunkZStart);
+			for(Circle n: gatherNearby(c)) {
+				CircleHelper.maskCircles(n, c);
+			}
+			addToGrid(c);
+		}
+
+		//Handle no existing circles by creating a single circle to build off of
+		if(circles.size() == 0) {
+			int x = chunkXStart + random.nextInt(16);
+			int z = chunkZStart + random.nextInt(16);
+			int radius = radiusCoordinator.getRadiusAtCoords(world, x, z);
+			Circle rootCircle = new Circle(x, z, radius);
+			rootCircle.real = true;
+			circles.add(rootCircle);
+			addToGrid(rootCircle);
+		}
+
+		//Gather the unsolved circles into a list
+		CircleHelper.gatherUnsolved(unsolved, circles);
+
+		int count = 0;
+
+		//Keep solving all unsolved circles until there aren't any more to solve.
+		while(!unsolved.isEmpty()) {
+			Circle master = unsolved.get(0);//Any circle will do.  May as well be the first.
+
+			int radius = getRadiusAtCircleTangent(world, radiusCoordinator, master);
+
+			Circle slave = CircleHelper.findSecondCircle(master, radius);//Create a second circle tangential to the master circle.
+			slavePos.set(slave.x, slave.z);//Cache slave position
+
+			//Mask off the master so it won't happen again.
+			master.arc |= 1 << master.getFreeBit();//Clear specific arc bit for good measure
+			CircleHelper.maskCircles(master, slave, true);
+
+			//Create a list of existing circles that are intersecting with this circle.  List is ordered by penetration depth.
+			ArrayList<Circle> intersecting = gatherNearby(slave);
+			int numCandidates = 0;
+			for(int i = 0; i < intersecting.size(); i++) {
+				Circle c = intersecting.get(i);
+				if(slave.doCirclesIntersectPadding(c)) {
+					if(numCandidates == candidateKeys.length) {
+						candidateKeys = Arrays.copyOf(candidateKeys, numCandidates * 2);
+					}
+					long depth = 16 + (int)c.circlePenetration(slave);
+					candidateKeys[numCandidates++] = depth << 16 | i;
+				}
+			}
+			Arrays.sort(candidateKeys, 0, numCandidates);
+
+			//Copy the candidates out since the nearby buffer is reused below
+			candidates.clear();
+			for(int k = 0; k < numCandidates; k++) {
+				candidates.add(intersecting.get((int)(candidateKeys[k] & 0xFFFF)));
+			}
+
+			//Run through all of the circles that were intersecting
+			for(Circle candidate: candidates) {
+				Circle master1 = master;//Cache master value because we do swapping later
+				Circle master2 = candidate;
+
+				//Determine handedness of 3rd circle interaction
+				int cross = Vec2i.crossProduct(delta1.set(slavePos.x, slavePos.z).sub(master1), delta2.set(master2.x, master2.z).sub(master1));
+				if(cross < 0){//Swap circles if the cross product is negative
+					Circle temp = master2;
+					master2 = master1;
+					master1 = temp;
+				}
+
+				slave = CircleHelper.findThirdCircle(master1, master2, radius);//Attempt to triangulate a circle position that is touching tangentially to both master circles
+				if(slave != null) {//Found a 3rd circle candidate
+					for(Circle c: gatherNearby(slave)) {
+						if(slave.doCirclesIntersect(c)){//See if this new circle intersects with any of the existing circles. If it does then..
+							if(c.real || (!c.real && !slave.isInCenterChunk(chunkXStart, chunkZStart)) ) {
+								slave = null;//Discard the circle because it's intersecting with an existing real circle
+								break;//We needn't continue since we've proven that the circle intersects with any circle
+							} else {//The overlapping circle is not real.. but the slave circle is.
+								removeCircle(c);//Delete the offending non-real circle
+							}
+						}
+					}
+				}
+
+				if(slave != null) {
+					break;//We found a viable circle.. time to move on
+				}
+			}
+
+			if(slave != null) {//The circle has passed all of the non-intersection tests.  Let's add it to the list of circles
+				slave.edgeMask(chunkXStart, chunkZStart);//Set the proper mask for whatever chunk this circle resides.
+				slave.real = slave.isInCenterChunk(chunkXStart, chunkZStart);//Only circles created in the center chunk are real
+				for(Circle c: gatherNearby(slave)) {//Only the new circle's neighbors could be affected by it
+					CircleHelper.maskCircles(slave, c);
+				}
+				circles.add(slave);//add the new circle to the full list
+				addToGrid(slave);
+			}
+
+			CircleHelper.gatherUnsolved(unsolved, circles);//List up the remaining unsolved circles and try again
+
+			if(++count > ModConfigs.worldGenSolverIterations && !unsolved.isEmpty()) {//It shouldn't take many iterations to solve all of the circles
+				failedSolves.incrementAndGet();
+				if(ModConfigs.worldGenDebug) {
+					System.err.println("-----" + unsolved.size() + " unsolved circles-----");
+					System.err.println("@ chunk x:" + chunkX + ", z:" + chunkZ);
+					System.err.println("after " + count + " iterations" );
+					for(Circle c: circles) {
+						System.err.println((c.hasFreeAngles() ? "->" : "  ") +  c);
+					}
+					CircleDebug.outputCirclesToPng(circles, chunkX, chunkZ, "");
+				}
+				return false;//Something went terribly wrong and we shouldn't hang the system for it.  Keep what we have.
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Use the circle and it's free arc angle to find the radius of the neighbor circle
+	 *
+	 * @param world
+	 * @param cA
+	 * @return radius of the circle
+	 */
+	private int getRadiusAtCircleTangent(World world, IRadiusCoordinator radiusCoordinator, Circle cA) {
+		float angle = (float)cA.getFreeAngle();
+
+		double x = cA.x + (MathHelper.sin(angle) * cA.radius * 1.5);
+		double z = cA.z + (MathHelper.cos(angle) * cA.radius * 1.5);
+
+		return radiusCoordinator.getRadiusAtCoords(world, x, z);
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ferreusveritas.dynamictrees.ModConstants;
+
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * A compact side store for {@link ChunkCircleSet} data that lives alongside the world save.  Circle data
+ * is kept in one small file for each region of 32x32 chunks.
+ *
+ * <pre><tt>
+ * ┌───────────────────┬──────────────────────────────┐
+ * │ 128 byte presence │ 1024 x 16 byte circle data   │
+ * │ bitmap            │ indexed (z << 5 | x)         │
+ * └───────────────────┴──────────────────────────────┘</tt></pre>
+ *
+ * Reads are random access and only touch the 16 bytes of the chunk being read.  Writes are queued up and
+ * written out in batches, one file at a time.  The presence bitmap of each region is kept in memory so that
+ * asking about chunks that were never stored doesn't touch the disk at all.
+ *
+ * @author ferreusveritas
+ */
+public class CircleStore {
+
+	private static final int CHUNKS = 1 << (CircleRegion.SHIFT * 2);
+	private static final int HEADER_SIZE = CHUNKS / 8;
+	private static final int DATA_SIZE = 16;
+	private static final int FILE_SIZE = HEADER_SIZE + CHUNKS * DATA_SIZE;
+
+	/** Pending writes beyond this number are flushed to disk straight away */
+	private static final int maxPending = 1024;
+
+	private final File directory;
+	private final HashMap<Long, byte[]> presence = new HashMap<Long, byte[]>();//regionKey -> presence bitmap
+	private final HashMap<Long, HashMap<Integer, byte[]>> pending = new HashMap<Long, HashMap<Integer, byte[]>>();//regionKey -> (chunk index -> data)
+	private int pendingCount = 0;
+
+	public CircleStore(File directory) {
+		this.directory = directory;
+	}
+
+	private static long regionKey(int chunkX, int chunkZ) {
+		return ChunkPos.asLong(chunkX >> CircleRegion.SHIFT, chunkZ >> CircleRegion.SHIFT);
+	}
+
+	private static int chunkIndex(int chunkX, int chunkZ) {
+		int mask = (1 << CircleRegion.SHIFT) - 1;
+		return (chunkZ & mask) << CircleRegion.SHIFT | (chunkX & mask);
+	}
+
+	private File getRegionFile(long regionKey) {
+		return new File(directory, "r." + (int)regionKey + "." + (int)(regionKey >> 32) + ".dtc");
+	}
+
+	private byte[] getPresence(long regionKey) {
+		byte[] bitmap = presence.get(regionKey);
+
+		if(bitmap == null) {
+			bitmap = new byte[HEADER_SIZE];
+			File file = getRegionFile(regionKey);
+			if(file.exists()) {
+				try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+					raf.readFully(bitmap);
+				} catch (IOException e) {
+					Logger.getLogger(ModConstants.MODID).log(Level.WARNING, "Unable to read circle data from " + file, e);
+				}
+			}
+			presence.put(regionKey, bitmap);
+		}
+
+		return bitmap;
+	}
+
+	/**
+	 * @return The 16 bytes of circle data for the chunk or null if the chunk was never stored
+	 */
+	public synchronized byte[] read(int chunkX, int chunkZ) {
+		long regionKey = regionKey(chunkX, chunkZ);
+		int index = chunkIndex(chunkX, chunkZ);
+
+		HashMap<Integer, byte[]> regionPending = pending.get(regionKey);
+		if(regionPending != null && regionPending.containsKey(index)) {
+			return regionPending.get(index).clone();
+		}
+
+		if((getPresence(regionKey)[index >> 3] & (1 << (index & 7))) == 0) {
+			return null;
+		}
+
+		byte[] data = new byte[DATA_SIZE];
+		File file = getRegionFile(regionKey);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			raf.seek(HEADER_SIZE + index * DATA_SIZE);
+			raf.readFully(data);
+		} catch (IOException e) {
+			Logger.getLogger(ModConstants.MODID).log(Level.WARNING, "Unable to read circle data from " + file, e);
+			return null;
+		}
+
+		return data;
+	}
+
+	/**
+	 * Queues the circle data of a chunk to be written on the next flush
+	 */
+	public synchronized void write(int chunkX, int chunkZ, byte[] circleData) {
+		byte[] prev = pending.computeIfAbsent(regionKey(chunkX, chunkZ), k -> new HashMap<Integer, byte[]>()).put(chunkIndex(chunkX, chunkZ), circleData.clone());
+		if(prev == null && ++pendingCount >= maxPending) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes all of the pending circle data to disk.  Each region file is opened once.
+	 */
+	public synchronized void flush() {
+		if(pending.isEmpty()) {
+			return;
+		}
+
+		directory.mkdirs();
+
+		for(Map.Entry<Long, HashMap<Integer, byte[]>> entry : pending.entrySet()) {
+			long regionKey = entry.getKey();
+			byte[] bitmap = getPresence(regionKey);
+			File file = getRegionFile(regionKey);
+
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				if(raf.length() < FILE_SIZE) {
+					raf.setLength(FILE_SIZE);
+				}
+				for(Map.Entry<Integer, byte[]> chunk : entry.getValue().entrySet()) {
+					int index = chunk.getKey();
+					raf.seek(HEADER_SIZE + index * DATA_SIZE);
+					raf.write(chunk.getValue(), 0, DATA_SIZE);
+					bitmap[index >> 3] |= 1 << (index & 7);
+				}
+				raf.seek(0);
+				raf.write(bitmap);//The header goes last so a chunk is never marked present before it's data is written
+			} catch (IOException e) {
+				Logger.getLogger(ModConstants.MODID).log(Level.WARNING, "Unable to write circle data to " + file, e);
+			}
+		}
+
+		pending.clear();
+		pendingCount = 0;
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import com.ferreusveritas.dynamictrees.ModConfigs;
+import com.ferreusveritas.dynamictrees.util.Circle;
+import com.ferreusveritas.dynamictrees.util.CoordUtils;
+
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3i;
+
+/**
+ * Compares the speed, density and quality of the {@link CircleSolver} and the {@link CircleTileLibrary} over a
+ * square of chunks without a world.  Chunks are generated in rows just like a player walking across the world
+ * and the circles of each chunk go through a {@link ChunkCircleSet} exactly as they would in game.
+ *
+ * Run with the width of the area in chunks and either a fixed radius or "mixed" for a radius field that
+ * varies smoothly across the area.
+ *
+ * @author ferreusveritas
+ */
+public class CircleTileBenchmark {
+
+	private static class Result {
+		long nanos;
+		int circles;
+		int coveredBlocks;
+		int totalBlocks;
+		int overlaps;
+	}
+
+	public static void main(String[] args) {
+		int width = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		String radiusArg = args.length > 1 ? args[1] : "mixed";
+
+		IRadiusCoordinator radiusCoordinator;
+		if(radiusArg.equals("mixed")) {
+			radiusCoordinator = (world, x, z) -> 2 + (int) ((Math.sin(x / 97.0) + Math.sin(z / 131.0) + 2.0) * 1.749);//2 to 8
+		} else {
+			int radius = Integer.parseInt(radiusArg);
+			radiusCoordinator = (world, x, z) -> radius;
+		}
+
+		if(ModConfigs.worldGenSolverIterations == 0) {//No config is loaded outside of the game
+			ModConfigs.worldGenSolverIterations = 64;
+		}
+
+		CircleTileLibrary library = new CircleTileLibrary();
+		long start = System.nanoTime();
+		for(int radius = 2; radius <= 8; radius++) {
+			final int r = radius;
+			library.getCircles(0, null, (world, x, z) -> r, 0, 0);//Solves the packings for the radius
+		}
+		System.out.println(String.format("Tile library built in %.1fms", (System.nanoTime() - start) / 1000000.0));
+
+		print("solver", runSolver(width, radiusCoordinator));
+		print("tiles", runTiles(width, radiusCoordinator, library));
+	}
+
+	private static void print(String name, Result result) {
+		int chunks = result.totalBlocks / 256;
+		System.out.println(String.format("%-7s %8.1fus/chunk %6.2f circles/chunk %6.1f%% covered %5d overlaps",
+			name, result.nanos / 1000.0 / chunks, result.circles / (double) chunks, result.coveredBlocks * 100.0 / result.totalBlocks, result.overlaps));
+	}
+
+	private static Result runSolver(int width, IRadiusCoordinator radiusCoordinator) {
+		HashMap<Long, ChunkCircleSet> sets = new HashMap<Long, ChunkCircleSet>();
+		CircleSolver solver = new CircleSolver();
+		Random random = new Random(0);
+		Result result = new Result();
+
+		long start = System.nanoTime();
+		for(int chunkZ = 0; chunkZ < width; chunkZ++) {
+			for(int chunkX = 0; chunkX < width; chunkX++) {
+				ArrayList<Circle> circles = solver.begin(chunkX, chunkZ);
+				for(Vec3i dir: CoordUtils.surround) {
+					ChunkCircleSet cSet = sets.get(ChunkPos.asLong(chunkX + dir.getX(), chunkZ + dir.getZ()));
+					if(cSet != null) {
+						cSet.getCircles(circles, chunkX + dir.getX(), chunkZ + dir.getZ());
+					}
+				}
+				solver.solve(null, random, radiusCoordinator, chunkX, chunkZ);
+				sets.put(ChunkPos.asLong(chunkX, chunkZ), store(circles, chunkX, chunkZ));
+			}
+		}
+		result.nanos = System.nanoTime() - start;
+
+		measure(sets, width, result);
+		return result;
+	}
+
+	private static Result runTiles(int width, IRadiusCoordinator radiusCoordinator, CircleTileLibrary library) {
+		HashMap<Long, ChunkCircleSet> sets = new HashMap<Long, ChunkCircleSet>();
+		Result result = new Result();
+
+		long start = System.nanoTime();
+		for(int chunkZ = 0; chunkZ < width; chunkZ++) {
+			for(int chunkX = 0; chunkX < width; chunkX++) {
+				ArrayList<Circle> circles = library.getCircles(0, null, radiusCoordinator, chunkX, chunkZ);
+				sets.put(ChunkPos.asLong(chunkX, chunkZ), store(circles, chunkX, chunkZ));
+			}
+		}
+		result.nanos = System.nanoTime() - start;
+
+		measure(sets, width, result);
+		return result;
+	}
+
+	private static ChunkCircleSet store(ArrayList<Circle> circles, int chunkX, int chunkZ) {
+		ChunkCircleSet cSet = new ChunkCircleSet();
+		cSet.generated = true;
+		for(Circle c: circles) {
+			if(c.isInCenterChunk(chunkX << 4, chunkZ << 4)) {
+				cSet.addCircle(c);
+			}
+		}
+		return cSet;
+	}
+
+	/**
+	 * Measures the chunks inside of the outer ring of the area since the outer ring is missing neighbors
+	 */
+	private static void measure(HashMap<Long, ChunkCircleSet> sets, int width, Result result) {
+		ArrayList<Circle> all = new ArrayList<Circle>();
+		for(int chunkZ = 0; chunkZ < width; chunkZ++) {
+			for(int chunkX = 0; chunkX < width; chunkX++) {
+				sets.get(ChunkPos.asLong(chunkX, chunkZ)).getCircles(all, chunkX, chunkZ);
+			}
+		}
+
+		int min = 16;
+		int max = (width - 1) * 16;
+		int dim = max - min;
+		boolean[] covered = new boolean[dim * dim];
+
+		for(int i = 0; i < all.size(); i++) {
+			Circle c = all.get(i);
+			boolean counted = c.x >= min && c.x < max && c.z >= min && c.z < max;
+			if(counted) {
+				result.circles++;
+			}
+
+			for(int z = c.z - c.radius; z <= c.z + c.radius; z++) {
+				for(int x = c.x - c.radius; x <= c.x + c.radius; x++) {
+					if(x >= min && x < max && z >= min && z < max && c.isInside(x, z)) {
+						covered[(z - min) * dim + (x - min)] = true;
+					}
+				}
+			}
+
+			if(counted) {
+				for(int j = i + 1; j < all.size(); j++) {
+					Circle o = all.get(j);
+					if(Math.abs(o.x - c.x) <= 17 && Math.abs(o.z - c.z) <= 17 && c.doCirclesIntersectPadding(o)) {
+						result.overlaps++;
+					}
+				}
+			}
+		}
+
+		for(boolean b : covered) {
+			if(b) {
+				result.coveredBlocks++;
+			}
+		}
+		result.totalBlocks = covered.length;
+	}
+
+}
@@ -0,0 +1,320 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.ferreusveritas.dynamictrees.util.Circle;
+import com.ferreusveritas.dynamictrees.util.MathHelper;
+
+import net.minecraft.world.World;
+
+/**
+ * A library of precomputed circle packings that are laid down as corner tiles instead of solving the circles
+ * of every chunk.
+ *
+ * The corners of a 64 block lattice are each given one of {@link #COLORS} colors from a hash of their
+ * position and the world seed.  The world is split into 32 block squares of four kinds:
+ * <pre><tt>
+ *  C H C H C     C: centered on a lattice corner, depends on the color of the corner
+ *  V I V I V     H: between two corners on the X axis, depends on the colors of both
+ *  C H C H C     V: between two corners on the Z axis, depends on the colors of both
+ *  V I V I V     I: the middle of a lattice tile, depends on the colors of all 4 corners</tt></pre>
+ *
+ * The packing of each kind of square is solved once, in that order, against the already solved squares
+ * around it.  Squares that only touch at a point can't be solved against one another so H and V squares keep
+ * their circles away from their corners.  Any two squares that meet are then guaranteed to fit together no
+ * matter which colors the lattice ends up with.
+ *
+ * There's a separate set of packings for each radius.  A square uses the radius found at it's center by the
+ * radius coordinator.  Where squares with different radii meet the circles of the lower ranking square(C, H,
+ * V then I) that intersect the other square's circles are dropped.  That's a handful of collision tests and
+ * there's no solving done during worldgen at all.
+ *
+ * @author ferreusveritas
+ */
+public class CircleTileLibrary {
+
+	public static final int COLORS = 3;
+	public static final int SQUARE = 32;
+	public static final int TILE = SQUARE * 2;
+
+	private static final int HALF = SQUARE / 2;
+
+	private enum Kind { C, H, V, I }
+
+	/** The packings of a single radius.  Circle centers are packed relative to the lowest lattice corner. */
+	private static class Band {
+		final int radius;
+		final int[][] c = new int[COLORS][];
+		final int[][] h = new int[COLORS * COLORS][];
+		final int[][] v = new int[COLORS * COLORS][];
+		final int[][] i = new int[COLORS * COLORS * COLORS * COLORS][];
+
+		Band(int radius) {
+			this.radius = radius;
+		}
+	}
+
+	private final Band[] bands = new Band[9];
+
+	private static int pack(int x, int z) {
+		return (z & 0xFFFF) << 16 | (x & 0xFFFF);
+	}
+
+	private static int unpackX(int packed) {
+		return (short) packed;
+	}
+
+	private static int unpackZ(int packed) {
+		return packed >> 16;
+	}
+
+	/**
+	 * @return The packings for the radius.  They're solved the first time they're needed.
+	 */
+	private Band getBand(int radius) {
+		Band band = bands[radius];
+		if(band == null) {
+			synchronized(this) {
+				band = bands[radius];
+				if(band == null) {
+					band = solveBand(radius);
+					bands[radius] = band;
+				}
+			}
+		}
+		return band;
+	}
+
+	//////////////////////////////
+	// SOLVING
+	//////////////////////////////
+
+	private static Band solveBand(int radius) {
+		Band band = new Band(radius);
+		Random random = new Random(0x5EED0000L + radius);//Always the same so the tiles are the same for every world and every run
+
+		for(int a = 0; a < COLORS; a++) {
+			band.c[a] = solveSquare(radius, random, -HALF, -HALF, new ArrayList<Circle>(), false);
+		}
+
+		for(int a = 0; a < COLORS; a++) {
+			for(int b = 0; b < COLORS; b++) {
+				ArrayList<Circle> fixed = new ArrayList<Circle>();
+				addCircles(fixed, band.c[a], 0, 0, radius);
+				addCircles(fixed, band.c[b], TILE, 0, radius);
+				band.h[a * COLORS + b] = solveSquare(radius, random, HALF, -HALF, fixed, true);
+
+				fixed.clear();
+				addCircles(fixed, band.c[a], 0, 0, radius);
+				addCircles(fixed, band.c[b], 0, TILE, radius);
+				band.v[a * COLORS + b] = solveSquare(radius, random, -HALF, HALF, fixed, true);
+			}
+		}
+
+		for(int corners = 0; corners < band.i.length; corners++) {
+			int a = corners / (COLORS * COLORS * COLORS);
+			int b = corners / (COLORS * COLORS) % COLORS;
+			int c = corners / COLORS % COLORS;
+			int d = corners % COLORS;
+			ArrayList<Circle> fixed = new ArrayList<Circle>();
+			addCircles(fixed, band.c[a], 0, 0, radius);
+			addCircles(fixed, band.c[b], TILE, 0, radius);
+			addCircles(fixed, band.c[c], 0, TILE, radius);
+			addCircles(fixed, band.c[d], TILE, TILE, radius);
+			addCircles(fixed, band.h[a * COLORS + b], 0, 0, radius);
+			addCircles(fixed, band.h[c * COLORS + d], 0, TILE, radius);
+			addCircles(fixed, band.v[a * COLORS + c], 0, 0, radius);
+			addCircles(fixed, band.v[b * COLORS + d], TILE, 0, radius);
+			band.i[corners] = solveSquare(radius, random, HALF, HALF, fixed, false);
+		}
+
+		return band;
+	}
+
+	private static void addCircles(List<Circle> circles, int[] packed, int offsetX, int offsetZ, int radius) {
+		for(int p : packed) {
+			circles.add(new Circle(unpackX(p) + offsetX, unpackZ(p) + offsetZ, radius, true));
+		}
+	}
+
+	/**
+	 * Greedily packs circles into a square.  Candidate positions are tried in rows with a little jitter so the
+	 * circles settle into a dense but irregular packing.  Only one circle is allowed in each 4x4 cell since
+	 * that's all that a {@link ChunkCircleSet} can hold.
+	 *
+	 * @param minX The lowest corner of the square
+	 * @param minZ
+	 * @param fixed Circles that were already solved around the square
+	 * @param clearCorners Keeps circles away from the corners of the square
+	 * @return The packed centers of the circles
+	 */
+	private static int[] solveSquare(int radius, Random random, int minX, int minZ, List<Circle> fixed, boolean clearCorners) {
+		long[] order = new long[SQUARE * SQUARE];
+		for(int i = 0; i < order.length; i++) {
+			int row = (i / SQUARE) + random.nextInt(radius);//Jitter the rows so they don't line up
+			order[i] = (long) row << 32 | (long) random.nextInt(4) << 16 | i;
+		}
+		Arrays.sort(order);
+
+		//Two circles on opposite sides of a corner are far enough apart if each is this far from the corner
+		int cornerClear = (int) Math.ceil((radius * 2 + 1) / Math.sqrt(2));
+		int cornerClearSq = cornerClear * cornerClear;
+
+		ArrayList<Circle> placed = new ArrayList<Circle>();
+		boolean[] cells = new boolean[(SQUARE / 4) * (SQUARE / 4)];
+		Circle candidate = new Circle(0, 0, radius, true);
+
+		for(long key : order) {
+			int i = (int) (key & 0xFFFF);
+			int dx = i % SQUARE;
+			int dz = i / SQUARE;
+			int cell = (dz >> 2) * (SQUARE / 4) + (dx >> 2);
+			if(cells[cell]) {
+				continue;
+			}
+
+			if(clearCorners) {
+				int cx = Math.min(dx, SQUARE - dx);
+				int cz = Math.min(dz, SQUARE - dz);
+				if(cx * cx + cz * cz < cornerClearSq) {
+					continue;
+				}
+			}
+
+			candidate.set(minX + dx, minZ + dz);
+			if(!collides(candidate, fixed) && !collides(candidate, placed)) {
+				placed.add(new Circle(candidate.x, candidate.z, radius, true));
+				cells[cell] = true;
+			}
+		}
+
+		int[] packed = new int[placed.size()];
+		for(int i = 0; i < packed.length; i++) {
+			packed[i] = pack(placed.get(i).x, placed.get(i).z);
+		}
+		return packed;
+	}
+
+	static boolean collides(Circle c, List<Circle> others) {
+		for(Circle o : others) {
+			int dx = o.x - c.x;
+			int dz = o.z - c.z;
+			int reach = o.radius + c.radius + 1;
+			if(dx * dx + dz * dz <= reach * reach && c.doCirclesIntersectPadding(o)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//////////////////////////////
+	// LOOKUP
+	//////////////////////////////
+
+	/** The color of a lattice corner */
+	private static int color(long seed, int cornerX, int cornerZ) {
+		long bits = seed ^ (cornerX * 0x9E3779B97F4A7C15L) ^ (cornerZ * 0xC2B2AE3D27D4EB4FL);
+		bits = (bits ^ (bits >>> 30)) * 0xBF58476D1CE4E5B9L;
+		bits = (bits ^ (bits >>> 27)) * 0x94D049BB133111EBL;
+		bits ^= bits >>> 31;
+		return (int) ((bits & Long.MAX_VALUE) % COLORS);
+	}
+
+	private static Kind getKind(int squareX, int squareZ) {
+		boolean oddX = (squareX & 1) != 0;
+		boolean oddZ = (squareZ & 1) != 0;
+		return oddX ? (oddZ ? Kind.I : Kind.H) : (oddZ ? Kind.V : Kind.C);
+	}
+
+	private static int squareOf(int blockCoord) {
+		return Math.floorDiv(blockCoord + HALF, SQUARE);
+	}
+
+	/**
+	 * Gets the circles of a square from the library
+	 *
+	 * @param seed The world seed
+	 * @param radius The radius of the square
+	 * @return The circles in world coordinates
+	 */
+	private ArrayList<Circle> getSquareCircles(long seed, int squareX, int squareZ, int radius, ArrayList<Circle> circles) {
+		Band band = getBand(radius);
+		int cornerX = Math.floorDiv(squareX, 2);//The lowest corner of the lattice tile the square belongs to
+		int cornerZ = Math.floorDiv(squareZ, 2);
+		int a = color(seed, cornerX, cornerZ);
+		int[] packed;
+
+		switch(getKind(squareX, squareZ)) {
+		case C: packed = band.c[a]; break;
+		case H: packed = band.h[a * COLORS + color(seed, cornerX + 1, cornerZ)]; break;
+		case V: packed = band.v[a * COLORS + color(seed, cornerX, cornerZ + 1)]; break;
+		default:
+			int b = color(seed, cornerX + 1, cornerZ);
+			int c = color(seed, cornerX, cornerZ + 1);
+			int d = color(seed, cornerX + 1, cornerZ + 1);
+			packed = band.i[((a * COLORS + b) * COLORS + c) * COLORS + d];
+			break;
+		}
+
+		addCircles(circles, packed, cornerX * TILE, cornerZ * TILE, radius);
+		return circles;
+	}
+
+	private int getSquareRadius(World world, IRadiusCoordinator radiusCoordinator, int squareX, int squareZ) {
+		return MathHelper.clamp(radiusCoordinator.getRadiusAtCoords(world, squareX * SQUARE, squareZ * SQUARE), 2, 8);
+	}
+
+	/**
+	 * Gets the circles of a chunk.  Chunks always fall inside of a single square.
+	 *
+	 * @param world The world
+	 * @param radiusCoordinator Provides the radius of each square
+	 * @param chunkX
+	 * @param chunkZ
+	 * @return The circles with centers in the chunk
+	 */
+	public ArrayList<Circle> getCircles(World world, IRadiusCoordinator radiusCoordinator, int chunkX, int chunkZ) {
+		return getCircles(world != null ? world.getSeed() : 0, world, radiusCoordinator, chunkX, chunkZ);
+	}
+
+	public ArrayList<Circle> getCircles(long seed, World world, IRadiusCoordinator radiusCoordinator, int chunkX, int chunkZ) {
+		int chunkXStart = chunkX << 4;
+		int chunkZStart = chunkZ << 4;
+		int squareX = squareOf(chunkXStart);
+		int squareZ = squareOf(chunkZStart);
+		int radius = getSquareRadius(world, radiusCoordinator, squareX, squareZ);
+		Kind kind = getKind(squareX, squareZ);
+
+		ArrayList<Circle> circles = new ArrayList<Circle>();
+		for(Circle c : getSquareCircles(seed, squareX, squareZ, radius, new ArrayList<Circle>())) {
+			if(c.isInCenterChunk(chunkXStart, chunkZStart)) {
+				circles.add(c);
+			}
+		}
+
+		//Give way to the circles of higher ranking neighbors that were packed for a different radius
+		ArrayList<Circle> neighbors = new ArrayList<Circle>();
+		for(int dz = -1; dz <= 1; dz++) {
+			for(int dx = -1; dx <= 1; dx++) {
+				int nx = squareX + dx;
+				int nz = squareZ + dz;
+				if(getKind(nx, nz).ordinal() < kind.ordinal()) {
+					int nRadius = getSquareRadius(world, radiusCoordinator, nx, nz);
+					if(nRadius != radius) {
+						getSquareCircles(seed, nx, nz, nRadius, neighbors);
+					}
+				}
+			}
+		}
+
+		if(!neighbors.isEmpty()) {
+			circles.removeIf(c -> collides(c, neighbors));
+		}
+
+		return circles;
+	}
+
+}
@@ -1,6 +1,5 @@
 package com.ferreusveritas.dynamictrees.worldgen;
 
-import java.util.HashMap;
 import java.util.Random;
 
 import com.ferreusveritas.dynamictrees.ModConstants;
@@ -59,7 +58,21 @@ public class DefaultBiomeDensityProvider implements IBiomeDensityProvider {
 		}
 	}
 		
-	HashMap<Integer, IChance> fastChanceLookup = new HashMap<Integer, IChance>();
+	/** The density rules of a single biome compiled into one place */
+	private class BiomeRules {
+		final boolean spooky;
+		final double naturalDensity;
+		final IChance chance;
+		
+		BiomeRules(Biome biome) {
+			spooky = CompatHelper.biomeHasType(biome, Type.SPOOKY);
+			naturalDensity = MathHelper.clamp((CompatHelper.getBiomeTreesPerChunk(biome)) / 10.0f, 0.0f, 1.0f);//Gives 0.0 to 1.0
+			chance = compileChance(biome);
+		}
+	}
+	
+	/** Compiled rules indexed by biome id */
+	private final BiomeRules[] fastRulesLookup = new BiomeRules[256];
 	
 	@Override
 	public String getName() {
@@ -73,57 +86,62 @@ public class DefaultBiomeDensityProvider implements IBiomeDensityProvider {
 
 	@Override
 	public double getDensity(Biome biome, double noiseDensity, Random random) {
+		BiomeRules rules = getRules(biome);
 		
-		if(CompatHelper.biomeHasType(biome, Type.SPOOKY)) { //Roofed Forest
+		if(rules.spooky) { //Roofed Forest
 			return 0.4f + (noiseDensity / 3.0f);
 		}
 		
-		double naturalDensity = MathHelper.clamp((CompatHelper.getBiomeTreesPerChunk(biome)) / 10.0f, 0.0f, 1.0f);//Gives 0.0 to 1.0
-		return noiseDensity * naturalDensity;
+		return noiseDensity * rules.naturalDensity;
 	}
 	
 	@Override
 	public EnumChance chance(Biome biome, Species species, int radius, Random random) {
-
+		//the last call should never be UNHANDLED for the DefaultBiomeDensityProvider since it is the last in the chain
+		return getRules(biome).chance.getChance(random, radius);
+	}
+	
+	private BiomeRules getRules(Biome biome) {
 		int biomeId = Biome.getIdForBiome(biome);
-		IChance chance;
-				
-		if(fastChanceLookup.containsKey(biomeId)) {
-			chance = fastChanceLookup.get(biomeId);
-		} else {
-			if(CompatHelper.biomeHasType(biome, Type.CONIFEROUS)) {
-				chance = new IChance() {
-					@Override
-					public EnumChance getChance(Random random, int radius) {
-						if(radius > 6) {
-							return random.nextFloat() < 0.5f ? EnumChance.OK : EnumChance.CANCEL;
-						}
-
-						return EnumChance.OK;
+		if(biomeId < 0 || biomeId >= fastRulesLookup.length) {
+			return new BiomeRules(biome);
+		}
+		
+		BiomeRules rules = fastRulesLookup[biomeId];
+		if(rules == null) {
+			rules = new BiomeRules(biome);
+			fastRulesLookup[biomeId] = rules;
+		}
+		return rules;
+	}
+	
+	private IChance compileChance(Biome biome) {
+		if(CompatHelper.biomeHasType(biome, Type.CONIFEROUS)) {
+			return new IChance() {
+				@Override
+				public EnumChance getChance(Random random, int radius) {
+					if(radius > 6) {
+						return random.nextFloat() < 0.5f ? EnumChance.OK : EnumChance.CANCEL;
 					}
-				};
-			}
-			else if(CompatHelper.biomeHasType(biome, Type.FOREST)) {//Never miss a chance to spawn a tree in a forest.
-				chance = new ChanceStatic(EnumChance.OK);
-			}
-			else if(biome == Biomes.MUTATED_ROOFED_FOREST) {//Although this is a forest it's not registered as one for some reason
-				chance = new ChanceStatic(EnumChance.OK);
-			}
-			else if(CompatHelper.biomeHasType(biome, Type.SWAMP)) {//Swamps need more tree opportunities since it's so watery
-				chance = new ChanceRandom(0.75f);
-			} 
-			else if(CompatHelper.getBiomeTreesPerChunk(biome) < 0) {//Deserts, Mesas, Beaches(-999) Mushroom Island(-100)
-				chance = new ChanceStatic(EnumChance.CANCEL);
-			}
-			else {
-				chance = new ChanceByRadius();//Let the radius determine the chance
-			}
-
-			fastChanceLookup.put(biomeId, chance);
+					
+					return EnumChance.OK;
+				}
+			};
+		}
+		else if(CompatHelper.biomeHasType(biome, Type.FOREST)) {//Never miss a chance to spawn a tree in a forest.
+			return new ChanceStatic(EnumChance.OK);
+		}
+		else if(biome == Biomes.MUTATED_ROOFED_FOREST) {//Although this is a forest it's not registered as one for some reason
+			return new ChanceStatic(EnumChance.OK);
+		}
+		else if(CompatHelper.biomeHasType(biome, Type.SWAMP)) {//Swamps need more tree opportunities since it's so watery
+			return new ChanceRandom(0.75f);
+		} 
+		else if(CompatHelper.getBiomeTreesPerChunk(biome) < 0) {//Deserts, Mesas, Beaches(-999) Mushroom Island(-100)
+			return new ChanceStatic(EnumChance.CANCEL);
 		}
 		
-		//the last call should never be UNHANDLED for the DefaultBiomeDensityProvider since it is the last in the chain
-		return chance.getChance(random, radius);
+		return new ChanceByRadius();//Let the radius determine the chance
 	}
 	
 }
@@ -1,7 +1,5 @@
 package com.ferreusveritas.dynamictrees.worldgen;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Random;
 
 import com.ferreusveritas.dynamictrees.ModConfigs;
@@ -37,7 +35,7 @@ public class DefaultBiomeTreeSelector implements IBiomeSpeciesSelector {
 	private StaticDecision staticDarkOakDecision;
 	
 	private interface ITreeSelector {
-		Decision getDecision();
+		Decision getDecision(long bits);
 	}
 	
 	private class StaticDecision implements ITreeSelector {
@@ -48,54 +46,29 @@ public class DefaultBiomeTreeSelector implements IBiomeSpeciesSelector {
 		}
 
 		@Override
-		public Decision getDecision() {
+		public Decision getDecision(long bits) {
 			return decision;
 		}
 	}
 	
 	private class RandomDecision implements ITreeSelector {
-
-		private class Entry {
-			public Entry(Decision d, int w) {
-				decision = d;
-				weight = w;
-			}
-			
-			public Decision decision;
-			public int weight;
-		}
 		
-		ArrayList<Entry> decisionTable = new ArrayList<Entry>();
-		int totalWeight;
-		Random rand;
-		
-		public RandomDecision(Random rand) {
-			this.rand = rand;
-		}
+		private final AliasTable<Decision> decisionTable = new AliasTable<Decision>();
 		
 		public RandomDecision addSpecies(Species species, int weight) {
-			decisionTable.add(new Entry(new Decision(species), weight));
-			totalWeight += weight;
+			decisionTable.add(new Decision(species), weight);
 			return this;
 		}
 		
 		@Override
-		public Decision getDecision() {
-			int chance = rand.nextInt(totalWeight);
-			
-			for(Entry entry: decisionTable) {
-				if(chance < entry.weight) {
-					return entry.decision;
-				}
-				chance -= entry.weight;
-			};
-
-			return decisionTable.get(decisionTable.size() - 1).decision;
+		public Decision getDecision(long bits) {
+			return decisionTable.sample(bits);
 		}
 		
 	}
 	
-	HashMap<Integer, ITreeSelector> fastTreeLookup = new HashMap<Integer, ITreeSelector>();
+	/** Compiled selectors indexed by biome id */
+	private final ITreeSelector[] fastTreeLookup = new ITreeSelector[256];
 	
 	public DefaultBiomeTreeSelector() {		
 	}
@@ -115,6 +88,14 @@ public class DefaultBiomeTreeSelector implements IBiomeSpeciesSelector {
 		staticSpruceDecision = new StaticDecision(new Decision(spruce));
 		staticBirchDecision = new StaticDecision(new Decision(birch));
 		staticDarkOakDecision = new StaticDecision(new Decision(darkoak));
+		
+		//Compile the selectors for every registered biome up front
+		for(Biome biome : Biome.REGISTRY) {
+			int biomeId = Biome.getIdForBiome(biome);
+			if(biomeId >= 0 && biomeId < fastTreeLookup.length) {
+				fastTreeLookup[biomeId] = compileSelector(biome);
+			}
+		}
 	}
 	
 	@Override
@@ -129,65 +110,80 @@ public class DefaultBiomeTreeSelector implements IBiomeSpeciesSelector {
 	
 	@Override
 	public Decision getSpecies(World world, Biome biome, BlockPos pos, IBlockState dirt, Random random) {
-
+		return getSelector(biome).getDecision(positionBits(world.getSeed(), pos));
+	}
+	
+	/**
+	 * Mixes the world seed and the position into 64 well distributed bits so the same position always
+	 * gets the same decision.
+	 */
+	private static long positionBits(long seed, BlockPos pos) {
+		long z = seed ^ (pos.getX() * 0x9E3779B97F4A7C15L) ^ (pos.getZ() * 0xC2B2AE3D27D4EB4FL);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	private ITreeSelector getSelector(Biome biome) {
 		int biomeId = Biome.getIdForBiome(biome);
-		ITreeSelector select;
-				
-		if(fastTreeLookup.containsKey(biomeId)) {
-			select = fastTreeLookup.get(biomeId);//Speedily look up the selector for the biome id
-		}
-		else {
-			if(biome instanceof BiomeHills) {//All biomes of type BiomeHills generate spruce 2/3 of the time and oak 1/3 of the time.
-				select = new RandomDecision(world.rand).addSpecies(spruce, 2).addSpecies(oak, 1);
-			}
-			else if(biome instanceof BiomePlains) {
-				if(ModConfigs.enableAppleTrees) {
-					select = new RandomDecision(world.rand).addSpecies(oak, 24).addSpecies(apple, 1);
-				} else {
-					select = staticOakDecision;
-				}
-			}
-			else if(CompatHelper.biomeHasType(biome, Type.FOREST)) {
-				if(biome == Biomes.MUTATED_REDWOOD_TAIGA || biome == Biomes.MUTATED_REDWOOD_TAIGA_HILLS) {//BiomeDictionary does not accurately give these the CONIFEROUS type.
-					select = staticSpruceDecision;
-				} else if (CompatHelper.biomeHasType(biome, Type.CONIFEROUS)) {
-					select = staticSpruceDecision;
-				} else if (CompatHelper.biomeHasType(biome, Type.SPOOKY)) {
-					select = staticDarkOakDecision;
-				} else if (Species.isOneOfBiomes(biome, Biomes.BIRCH_FOREST, Biomes.BIRCH_FOREST_HILLS)) {
-					select = staticBirchDecision;
-				} else {//At this point we are mostly sure that we are dealing with a plain "BiomeForest" which generates a Birch Tree 1/5 of the time.
-					select = new RandomDecision(world.rand).addSpecies(oak, 4).addSpecies(birch, 1);
-				}
-			} else if(biome == Biomes.MUTATED_ROOFED_FOREST) {//For some reason this isn't registered as either FOREST or SPOOKY
-				select = staticDarkOakDecision;
-			}
-			else if(biome == Biomes.MESA_ROCK) {
-				select = staticOakDecision;
-			}
-			else if(CompatHelper.biomeHasType(biome, Type.JUNGLE)) {
-				select = new StaticDecision(new Decision(jungle));
-			}
-			else if(CompatHelper.biomeHasType(biome, Type.SAVANNA)) {
-				select = new StaticDecision(new Decision(acacia));
-			}
-			else if(CompatHelper.biomeHasType(biome, Type.SWAMP)) {
-				select = new StaticDecision(new Decision(oakswamp));
-			}
-			else if(CompatHelper.biomeHasType(biome, Type.SANDY)) {
-				select = new StaticDecision(new Decision());//Not handled, no tree
-			}
-			else if(CompatHelper.biomeHasType(biome, Type.WASTELAND)) {
-				select = new StaticDecision(new Decision());//Not handled, no tree
+		if(biomeId < 0 || biomeId >= fastTreeLookup.length) {
+			return compileSelector(biome);
+		}
+		
+		ITreeSelector select = fastTreeLookup[biomeId];//Speedily look up the selector for the biome id
+		if(select == null) {//A biome that was registered late
+			select = compileSelector(biome);
+			fastTreeLookup[biomeId] = select;
+		}
+		return select;
+	}
+	
+	private ITreeSelector compileSelector(Biome biome) {
+		if(biome instanceof BiomeHills) {//All biomes of type BiomeHills generate spruce 2/3 of the time and oak 1/3 of the time.
+			return new RandomDecision().addSpecies(spruce, 2).addSpecies(oak, 1);
+		}
+		else if(biome instanceof BiomePlains) {
+			if(ModConfigs.enableAppleTrees) {
+				return new RandomDecision().addSpecies(oak, 24).addSpecies(apple, 1);
+			} else {
+				return staticOakDecision;
 			}
-			else {
-				select = staticOakDecision;//Just default to oak for everything else
+		}
+		else if(CompatHelper.biomeHasType(biome, Type.FOREST)) {
+			if(biome == Biomes.MUTATED_REDWOOD_TAIGA || biome == Biomes.MUTATED_REDWOOD_TAIGA_HILLS) {//BiomeDictionary does not accurately give these the CONIFEROUS type.
+				return staticSpruceDecision;
+			} else if (CompatHelper.biomeHasType(biome, Type.CONIFEROUS)) {
+				return staticSpruceDecision;
+			} else if (CompatHelper.biomeHasType(biome, Type.SPOOKY)) {
+				return staticDarkOakDecision;
+			} else if (Species.isOneOfBiomes(biome, Biomes.BIRCH_FOREST, Biomes.BIRCH_FOREST_HILLS)) {
+				return staticBirchDecision;
+			} else {//At this point we are mostly sure that we are dealing with a plain "BiomeForest" which generates a Birch Tree 1/5 of the time.
+				return new RandomDecision().addSpecies(oak, 4).addSpecies(birch, 1);
 			}
-
-			fastTreeLookup.put(biomeId, select);//Cache decision for future use
+		} else if(biome == Biomes.MUTATED_ROOFED_FOREST) {//For some reason this isn't registered as either FOREST or SPOOKY
+			return staticDarkOakDecision;
 		}
-
-		return select.getDecision();
+		else if(biome == Biomes.MESA_ROCK) {
+			return staticOakDecision;
+		}
+		else if(CompatHelper.biomeHasType(biome, Type.JUNGLE)) {
+			return new StaticDecision(new Decision(jungle));
+		}
+		else if(CompatHelper.biomeHasType(biome, Type.SAVANNA)) {
+			return new StaticDecision(new Decision(acacia));
+		}
+		else if(CompatHelper.biomeHasType(biome, Type.SWAMP)) {
+			return new StaticDecision(new Decision(oakswamp));
+		}
+		else if(CompatHelper.biomeHasType(biome, Type.SANDY)) {
+			return new StaticDecision(new Decision());//Not handled, no tree
+		}
+		else if(CompatHelper.biomeHasType(biome, Type.WASTELAND)) {
+			return new StaticDecision(new Decision());//Not handled, no tree
+		}
+		
+		return staticOakDecision;//Just default to oak for everything else
 	}
 
 }
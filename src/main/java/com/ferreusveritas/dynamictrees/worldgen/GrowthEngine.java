@@ -0,0 +1,165 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.ferreusveritas.dynamictrees.api.IAgeable;
+import com.ferreusveritas.dynamictrees.api.TreeHelper;
+import com.ferreusveritas.dynamictrees.api.treedata.ITreePart;
+import com.ferreusveritas.dynamictrees.blocks.BlockRootyDirt;
+import com.ferreusveritas.dynamictrees.systems.LeavesSpeciesCache;
+import com.ferreusveritas.dynamictrees.trees.DynamicTree;
+import com.ferreusveritas.dynamictrees.trees.Species;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.biome.Biome;
+
+/**
+ * Grows trees from a sapling to the end of their lives in a {@link VoxelWorld} instead of the real world.
+ * The species' own growth, grow signals, leaf cell kits, aging and rot are all run unmodified.  The grown tree
+ * is turned into a {@link JoCode} that can be added to the species' {@link TreeCodeStore} for worldgen or
+ * written out to expand the tree code files.
+ *
+ * Each tree gets it's own voxel world so any number of trees can be grown at once on different threads.
+ *
+ * @author ferreusveritas
+ */
+public class GrowthEngine {
+
+	/** A tree that has finished growing */
+	public static class GrownTree {
+		public final JoCode code;
+		public final int radius;
+		public final int pulses;//The number of growth pulses the tree lived for
+		public final int blocks;//The number of branch and leaves blocks in the finished tree
+
+		public GrownTree(JoCode code, int radius, int pulses, int blocks) {
+			this.code = code;
+			this.radius = radius;
+			this.pulses = pulses;
+			this.blocks = blocks;
+		}
+	}
+
+	private final Species species;
+	private final Biome biome;
+	private int maxPulses = 512;
+	private int settlePulses = 3;
+
+	/**
+	 * @param species The species to grow
+	 * @param biome The biome the trees grow in.  Some species grow differently depending on the biome.
+	 */
+	public GrowthEngine(Species species, Biome biome) {
+		this.species = species;
+		this.biome = biome;
+	}
+
+	/**
+	 * @param maxPulses Growth is stopped after this many pulses even if the soil isn't depleted
+	 */
+	public GrowthEngine setMaxPulses(int maxPulses) {
+		this.maxPulses = maxPulses;
+		return this;
+	}
+
+	/**
+	 * Grows a single tree until it's soil is depleted.
+	 *
+	 * @param seed Trees grown from the same seed and radius come out the same
+	 * @param radius The radius of the circle the tree is confined to
+	 * @return The grown tree or null if the tree died
+	 */
+	public GrownTree grow(long seed, int radius) {
+		VoxelWorld world = new VoxelWorld(biome, radius);
+		world.rand.setSeed(seed);
+		Random random = new Random(seed);
+
+		BlockPos rootPos = new BlockPos(0, VoxelWorld.GROUND, 0);
+		BlockPos treePos = rootPos.up();
+		DynamicTree tree = species.getTree();
+
+		//Planted exactly like a sapling that has just grown
+		world.setBlockState(treePos, tree.getDynamicBranch().getDefaultState());
+		world.setBlockState(treePos.up(), tree.getDynamicLeavesState());
+		species.placeRootyDirtBlock(world, rootPos, 15);
+
+		try {
+			BlockRootyDirt rootyDirt = TreeHelper.getRootyDirt(world, rootPos);
+			if(rootyDirt == null) {
+				return null;
+			}
+
+			int pulse;
+			for(pulse = 0; pulse < maxPulses; pulse++) {
+				int soilLife = rootyDirt.getSoilLife(world, rootPos);
+				if(soilLife == 0) {
+					break;//The tree has lived it's full life
+				}
+
+				ITreePart treeBase = TreeHelper.getTreePart(world, treePos);
+				if(treeBase == null || !species.update(world, rootyDirt, rootPos, soilLife, treeBase, treePos, random, true)) {
+					return null;
+				}
+				age(world, random);
+			}
+
+			for(int i = 0; i < settlePulses; i++) {
+				age(world, random);
+			}
+
+			if(TreeHelper.getBranch(world, treePos) == null) {
+				return null;
+			}
+
+			return new GrownTree(new JoCode().buildFromTree(world, rootPos), radius, pulse, world.getBlockCount());
+		} finally {
+			LeavesSpeciesCache.unloadWorld(world);
+		}
+	}
+
+	/**
+	 * Ages every block that can be aged once.  The same as {@link TreeHelper#ageVolume} but only visits the
+	 * blocks that can actually be aged.
+	 */
+	private void age(VoxelWorld world, Random random) {
+		for(BlockPos pos : world.getAgeables()) {
+			IBlockState state = world.getBlockState(pos);
+			Block block = state.getBlock();
+			if(block instanceof IAgeable) {
+				((IAgeable)block).age(world, pos, state, random, true);
+			}
+		}
+	}
+
+	/**
+	 * Grows trees on all of the cores.  Trees that die and trees with the same code as one that was already
+	 * grown are left out so fewer trees than asked for may be returned.
+	 *
+	 * @param seed The seed of the first tree.  Each tree after it uses the next seed.
+	 * @param count The number of trees to grow
+	 * @param radius The radius of the circle the trees are confined to
+	 * @return The unique trees in seed order
+	 */
+	public List<GrownTree> growMany(long seed, int count, int radius) {
+		List<GrownTree> grown = IntStream.range(0, count).parallel()
+			.mapToObj(i -> grow(seed + i, radius))
+			.collect(Collectors.toList());
+
+		LinkedHashMap<String, GrownTree> unique = new LinkedHashMap<String, GrownTree>();
+		for(GrownTree tree : grown) {
+			if(tree != null) {
+				unique.putIfAbsent(tree.code.toString(), tree);
+			}
+		}
+
+		return new ArrayList<GrownTree>(unique.values());
+	}
+
+}
@@ -1,12 +1,18 @@
 package com.ferreusveritas.dynamictrees.worldgen;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import com.ferreusveritas.dynamictrees.ModConfigs;
 import com.ferreusveritas.dynamictrees.api.TreeHelper;
 import com.ferreusveritas.dynamictrees.api.network.MapSignal;
 import com.ferreusveritas.dynamictrees.blocks.BlockBranch;
 import com.ferreusveritas.dynamictrees.blocks.BlockDynamicLeaves;
+import com.ferreusveritas.dynamictrees.systems.LeavesSpeciesCache;
 import com.ferreusveritas.dynamictrees.systems.nodemappers.NodeCoder;
 import com.ferreusveritas.dynamictrees.systems.nodemappers.NodeFindEnds;
 import com.ferreusveritas.dynamictrees.systems.nodemappers.NodeInflator;
@@ -16,9 +22,11 @@ import com.ferreusveritas.dynamictrees.util.MathHelper;
 import com.ferreusveritas.dynamictrees.util.SafeChunkBounds;
 import com.ferreusveritas.dynamictrees.util.SimpleVoxmap;
 import com.ferreusveritas.dynamictrees.util.SimpleVoxmap.Cell;
+import com.ferreusveritas.dynamictrees.worldgen.WorldGenRandom.Purpose;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Biomes;
 import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
@@ -33,11 +41,12 @@ import net.minecraft.world.biome.Biome;
 */
 public class JoCode {
 
-	static private final String base64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+	static final String base64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
 	static private final byte forkCode = 6;
 	static private final byte returnCode = 7;
 
 	public ArrayList<Byte> instructions;
+	private final AtomicReferenceArray<TreeTemplate> templates = new AtomicReferenceArray<TreeTemplate>(EnumFacing.HORIZONTALS.length);//Simulated worldgen trees, one per direction
 	private boolean careful = false;//If true the code checks for surrounding branches while building to avoid making frankentrees.  Safer but slower.
 
 	public JoCode() {
@@ -125,87 +134,352 @@ public class JoCode {
 	* @param radius Constraint radius
 	*/
 	public void generate(World world, Species species, BlockPos rootPos, Biome biome, EnumFacing facing, int radius) {
+		generate(world, species, rootPos, biome, facing, radius, new SafeChunkBounds(world, rootPos), world.rand);
+	}
+	
+	/**
+	* Generate a tree from a JoCode instruction list.
+	* 
+	* @param world The world
+	* @param seed The seed used to create the tree
+	* @param rootPos The position of what will become the rootydirt block
+	* @param biome The biome of the coordinates.
+	* @param facing Direction of tree
+	* @param radius Constraint radius
+	* @param safeBounds An area that is safe to place leaves in during worldgen.  Left unmodified.
+	* @param random Used for aging, rot and decoration
+	*/
+	public void generate(World world, Species species, BlockPos rootPos, Biome biome, EnumFacing facing, int radius, SafeChunkBounds safeBounds, Random random) {
+		//A Tree generation boundary radius is at least 2 and at most 8
+		radius = MathHelper.clamp(radius, 2, 8);
+		
+		//Paste the tree from a template if nothing is in the way
+		if(pasteTemplate(world, species, rootPos, biome, facing, radius, safeBounds, random)) {
+			return;
+		}
+		
 		IBlockState initialState = world.getBlockState(rootPos);//Save the initial state of the dirt in case this fails
+		
+		//Worldgen trees are written straight into the chunk sections and relit once they're finished
+		ChunkSectionWriter writer = careful ? null : new ChunkSectionWriter(world);
+		
+		List<BlockPos> endPoints = simulate(world, writer, species, rootPos, facing, radius, safeBounds, random);
+		if(endPoints != null) {
+			//Allow for special decorations by the tree itself
+			species.postGeneration(world, rootPos, biome, radius, endPoints, !careful, WorldGenRandom.split(random, Purpose.DECORATION));
+		} else { //The growth failed.. turn the soil back to what it was
+			world.setBlockState(rootPos, initialState, careful ? 3 : 2);
+		}
+
+	}
+	
+	/**
+	* Draws the tree, inflates it's branches, places it's leaves then ages and rots it.  The tree is not decorated.
+	* 
+	* @param writer Writes the blocks straight into the chunk sections.  Null to go through the world.
+	* @return The end points that survived rot or null if the tree couldn't grow
+	*/
+	private List<BlockPos> simulate(World world, ChunkSectionWriter writer, Species species, BlockPos rootPos, EnumFacing facing, int radius, SafeChunkBounds safeBounds, Random random) {
 		species.placeRootyDirtBlock(world, rootPos, 0);//Set to unfertilized rooty dirt
 
-		//A Tree generation boundary radius is at least 2 and at most 8
-		radius = MathHelper.clamp(radius, 2, 8);
 		BlockPos treePos = rootPos.up();
 		
 		//Create tree
 		setFacing(facing);
-		generateFork(world, species, 0, rootPos, false);
+		generateFork(world, writer, species, 0, rootPos, false);
 
 		//Fix branch thicknesses and map out leaf locations
 		BlockBranch branch = TreeHelper.getBranch(world, treePos);
-		if(branch != null) {//If a branch exists then the growth was successful
-			SimpleVoxmap leafMap = new SimpleVoxmap(radius * 2 + 1, 32, radius * 2 + 1).setMapAndCenter(treePos, new BlockPos(radius, 0, radius));
-			NodeInflator inflator = new NodeInflator(species, leafMap);//This is responsible for thickening the branches
-			NodeFindEnds endFinder = new NodeFindEnds();//This is responsible for gathering a list of branch end points
-			MapSignal signal = new MapSignal(inflator, endFinder);//The inflator signal will "paint" a temporary voxmap of all of the leaves and branches.
-			branch.analyse(world, treePos, EnumFacing.DOWN, signal);
-			List<BlockPos> endPoints = endFinder.getEnds();
-			
-			smother(leafMap, branch.getTree());//Use the voxmap to precompute leaf smothering so we don't have to age it as many times.
+		if(branch == null) {//The growth failed
+			if(writer != null) {
+				writer.flush();
+			}
+			return null;
+		}
+		
+		SimpleVoxmap leafMap = new SimpleVoxmap(radius * 2 + 1, 32, radius * 2 + 1).setMapAndCenter(treePos, new BlockPos(radius, 0, radius));
+		NodeInflator inflator = new NodeInflator(species, leafMap);//This is responsible for thickening the branches
+		NodeFindEnds endFinder = new NodeFindEnds();//This is responsible for gathering a list of branch end points
+		MapSignal signal = new MapSignal(inflator, endFinder);//The inflator signal will "paint" a temporary voxmap of all of the leaves and branches.
+		branch.analyse(world, treePos, EnumFacing.DOWN, signal);
+		List<BlockPos> endPoints = endFinder.getEnds();
+		
+		smother(leafMap, branch.getTree());//Use the voxmap to precompute leaf smothering so we don't have to age it as many times.
+		
+		settleTree(world, writer, species, rootPos, radius, safeBounds, leafMap, endPoints, random);
+		return endPoints;
+	}
+	
+	/**
+	* Generate a tree that was expanded off-world ahead of time.  Only the collision checks and the writes to the
+	* world are left to do.  A tree that collides with anything, or that was never expanded, is simulated against
+	* the world instead.
+	* 
+	* @param world The world
+	* @param rootPos The position of what will become the rootydirt block
+	* @param biome The biome of the coordinates.
+	* @param safeBounds An area that is safe to place leaves in during worldgen.  Left unmodified.
+	* @param buffer The tree expanded from this code
+	* @param random Used for aging, rot and decoration
+	*/
+	public void generate(World world, BlockPos rootPos, Biome biome, SafeChunkBounds safeBounds, TreeBuffer buffer, Random random) {
+		Species species = buffer.getSpecies();
+		EnumFacing facing = buffer.getFacing();
+		int radius = buffer.getRadius();
+		
+		if(pasteTemplate(world, species, rootPos, biome, facing, radius, safeBounds, random)) {
+			return;
+		}
+		
+		if(careful || !buffer.isExpanded() || !buffer.fits(world, rootPos)) {
+			generate(world, species, rootPos, biome, facing, radius, safeBounds, random);
+			return;
+		}
+		
+		species.placeRootyDirtBlock(world, rootPos, 0);//Set to unfertilized rooty dirt
+		
+		ChunkSectionWriter writer = new ChunkSectionWriter(world);
+		buffer.placeBranches(writer, rootPos);
+		
+		List<BlockPos> endPoints = buffer.getEnds(rootPos);
+		settleTree(world, writer, species, rootPos, radius, safeBounds, buffer.getLeafMap(rootPos), endPoints, random);
+		
+		//Allow for special decorations by the tree itself
+		species.postGeneration(world, rootPos, biome, radius, endPoints, true, WorldGenRandom.split(random, Purpose.DECORATION));
+	}
+	
+	private boolean pasteTemplate(World world, Species species, BlockPos rootPos, Biome biome, EnumFacing facing, int radius, SafeChunkBounds safeBounds, Random random) {
+		if(!useTemplates(facing)) {
+			return false;
+		}
+		
+		TreeTemplate template = getTemplate(species, facing, radius);
+		if(template.place(world, rootPos, safeBounds)) {
+			species.postGeneration(world, rootPos, biome, radius, template.getEnds(rootPos), true, WorldGenRandom.split(random, Purpose.DECORATION));
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * @return true if the tree would be pasted from it's template by {@link #generate} rather than simulated
+	 */
+	boolean templateFits(World world, Species species, BlockPos rootPos, EnumFacing facing, int radius, SafeChunkBounds safeBounds) {
+		return useTemplates(facing) && getTemplate(species, facing, MathHelper.clamp(radius, 2, 8)).fits(world, rootPos, safeBounds);
+	}
+	
+	/**
+	 * Gets the template of this code for the direction, simulating it if it hasn't been yet.  The tree is
+	 * simulated in a {@link VoxelWorld} with a random seeded from the code and the direction alone so every world
+	 * and every run pastes the same tree no matter which chunks were generated first.  If two threads race to
+	 * simulate the same template they come up with identical ones.
+	 */
+	TreeTemplate getTemplate(Species species, EnumFacing facing, int radius) {
+		int index = facing.getHorizontalIndex();
+		TreeTemplate template = templates.get(index);
+		if(template == null || !template.matches(species, radius)) {
+			JoCode code = new JoCode();//A copy so the facing of this code isn't disturbed
+			code.instructions = instructions;
 			
-			//Establish a zone where we can place leaves without hitting ungenerated chunks.
-			SafeChunkBounds safeBounds = new SafeChunkBounds(world, rootPos);//Area that is safe to place leaves during worldgen
+			VoxelWorld world = new VoxelWorld(Biomes.PLAINS, radius * 2 + 2);//Fenced far enough out that leaves are never blocked
+			BlockPos rootPos = new BlockPos(0, VoxelWorld.GROUND, 0);
+			Random random = WorldGenRandom.forPos(instructions.hashCode(), index, radius);
+			try {
+				List<BlockPos> endPoints = code.simulate(world, null, species, rootPos, facing, radius, new SafeChunkBounds(world, rootPos), random);
+				template = endPoints != null ? TreeTemplate.capture(world, species, rootPos, radius, endPoints) : null;
+			} finally {
+				LeavesSpeciesCache.unloadWorld(world);
+			}
 			
-			//Place Growing Leaves Blocks from voxmap
-			IBlockState leavesState = branch.getTree().getDynamicLeavesState();
-			for(Cell cell: leafMap.getAllNonZeroCells((byte) 0x0F)) {//Iterate through all of the cells that are leaves(not air or branches)
-				BlockPos cellPos = cell.getPos();
-				if(safeBounds.inBounds(cellPos)) {
-					IBlockState testBlockState = world.getBlockState(cellPos);
-					Block testBlock = testBlockState.getBlock();
-					if(testBlock.isReplaceable(world, cellPos)) {
-						world.setBlockState(cellPos, leavesState.withProperty(BlockDynamicLeaves.HYDRO, MathHelper.clamp(cell.getValue(), 1, 4)), careful ? 2 : 0);
+			if(template == null) {
+				template = TreeTemplate.empty(species, radius);//So the failure isn't simulated over and over
+			}
+			templates.set(index, template);
+		}
+		return template;
+	}
+	
+	private boolean useTemplates(EnumFacing facing) {
+		return !careful && ModConfigs.worldGenTemplates && facing.getAxis() != EnumFacing.Axis.Y;
+	}
+	
+	/**
+	 * Places the leaves from the leaf map then ages and rots the tree.  The branches must already be in place.
+	 * 
+	 * @param writer Writes the leaves straight into the chunk sections.  Null to go through the world.
+	 * @param leafMap The smothered leaf map in world coordinates
+	 * @param random Split into a separate stream for growth when it's a {@link WorldGenRandom}
+	 */
+	private void settleTree(World world, ChunkSectionWriter writer, Species species, BlockPos rootPos, int radius,
+			SafeChunkBounds safeBounds, SimpleVoxmap leafMap, List<BlockPos> endPoints, Random random) {
+		BlockPos treePos = rootPos.up();
+		
+		//Leaves that land in chunks that aren't generated yet are queued for when they are
+		PendingVoxels pending = writer != null && ModConfigs.worldGenDeferredLeaves ? PendingVoxels.get(world) : null;
+		
+		//Place Growing Leaves Blocks from voxmap
+		IBlockState leavesState = species.getTree().getDynamicLeavesState();
+		for(Cell cell: leafMap.getAllNonZeroCells((byte) 0x0F)) {//Iterate through all of the cells that are leaves(not air or branches)
+			BlockPos cellPos = cell.getPos();
+			IBlockState cellState = leavesState.withProperty(BlockDynamicLeaves.HYDRO, MathHelper.clamp(cell.getValue(), 1, 4));
+			if(safeBounds.inBounds(cellPos)) {
+				IBlockState testBlockState = world.getBlockState(cellPos);
+				Block testBlock = testBlockState.getBlock();
+				if(testBlock.isReplaceable(world, cellPos)) {
+					if(writer != null) {
+						writer.setBlockState(cellPos, cellState);
+					} else {
+						world.setBlockState(cellPos, cellState, 2);
 					}
-				} else {
-					leafMap.setVoxel(cellPos, (byte) 0);
 				}
+			} else {
+				if(pending != null && !world.isChunkGeneratedAt(cellPos.getX() >> 4, cellPos.getZ() >> 4)) {
+					pending.add(cellPos, cellState);
+				}
+				leafMap.setVoxel(cellPos, (byte) 0);
 			}
+		}
 
-			//Shrink the safeBounds down by 1 so that the aging process won't look for neighbors outside of the bounds.
-			safeBounds.setShrink(1);
-			for(Cell cell: leafMap.getAllNonZeroCells((byte) 0x0F)) {
-				BlockPos cellPos = cell.getPos();
-				if(!safeBounds.inBounds(cellPos)) {
-					leafMap.setVoxel(cellPos, (byte) 0);
-				}
+		if(writer != null) {
+			writer.flush();//The aging process runs through the world so it needs to see up to date lighting
+		}
+		
+		//Shrink the safeBounds down by 1 so that the aging process won't look for neighbors outside of the bounds.
+		SafeChunkBounds shrunkBounds = new SafeChunkBounds(safeBounds, 1);
+		for(Cell cell: leafMap.getAllNonZeroCells((byte) 0x0F)) {
+			BlockPos cellPos = cell.getPos();
+			if(!shrunkBounds.inBounds(cellPos)) {
+				leafMap.setVoxel(cellPos, (byte) 0);
+			}
+		}
+		
+		//Age volume for 3 cycles using a leafmap
+		Random growth = WorldGenRandom.split(random, Purpose.GROWTH);
+		TreeHelper.ageVolume(world, treePos, radius, 32, leafMap, 3, growth);
+		
+		//Rot the unsupported branches
+		species.handleRot(world, endPoints, rootPos, treePos, 0, true, growth);
+	}
+	
+	/**
+	 * Expands the tree into the buffer without touching the world.  The tree is drawn as if it were standing
+	 * in open air then it's branches are inflated and it's leaves are stamped and smothered exactly like a
+	 * simulated tree.  Nothing in the code is modified so codes can be expanded on any number of threads.
+	 * 
+	 * @param buffer The buffer of a tree that was picked to use this code
+	 */
+	void expand(TreeBuffer buffer) {
+		Species species = buffer.getSpecies();
+		DynamicTree tree = species.getTree();
+		int radius = buffer.getRadius();
+		
+		//The facing is looked up locally rather than with setFacing since the code may be shared between threads
+		int faceNum = buffer.getFacing().ordinal();
+		faceNum = (faceNum == 4) ? 5 : (faceNum == 5) ? 4 : faceNum;//Swap West and East
+		
+		ArrayList<BlockPos> nodes = new ArrayList<BlockPos>();
+		ArrayList<Integer> parents = new ArrayList<Integer>();
+		expandFork(dirmap[faceNum], 0, new BlockPos(0, -1, 0), -1, false, nodes, parents, new HashMap<BlockPos, Integer>());
+		
+		if(nodes.isEmpty()) {
+			return;//The code didn't even make it out of the ground
+		}
+		
+		//Children always come after their parents so working backwards inflates each branch after all of it's children
+		int count = nodes.size();
+		float[] radii = new float[count];
+		float[] areas = new float[count];
+		int[] lastChild = new int[count];
+		Arrays.fill(lastChild, -1);
+		for(int i = count - 1; i > 0; i--) {
+			int parent = parents.get(i);
+			if(lastChild[parent] == -1) {
+				lastChild[parent] = i;//The first child found working backwards is the last one the signal returns from
+			}
+		}
+		
+		SimpleVoxmap leafMap = new SimpleVoxmap(radius * 2 + 1, 32, radius * 2 + 1).setCenter(new BlockPos(radius, 0, radius));
+		SimpleVoxmap leafCluster = tree.getCellKit().getLeafCluster();
+		ArrayList<BlockPos> ends = new ArrayList<BlockPos>();
+		int[] branchRadii = new int[count];
+		
+		for(int i = count - 1; i >= 0; i--) {
+			BlockPos pos = nodes.get(i);
+			if(lastChild[i] == -1) {//Twig
+				radii[i] = 1.0f;
+				branchRadii[i] = 1;
+				leafMap.setVoxel(pos, (byte) 16);//16(bit 5) is code for a twig
+				leafMap.BlitMax(pos, leafCluster);
+				ends.add(pos);
+			} else {
+				//The branch the signal came back from counts at full precision and the rest as they were set in the world
+				float areaAccum = areas[i] + radii[lastChild[i]] * radii[lastChild[i]];
+				float r = (float)Math.sqrt(areaAccum) + (species.getTapering() * species.getWorldGenTaperingFactor());
+				r = Math.max(r, species.getSecondaryThickness());//Make sure that non-twig branches are at least radius 2
+				radii[i] = r;
+				branchRadii[i] = MathHelper.clamp((int)Math.floor(r), 1, 8);
+				leafMap.setVoxel(pos, (byte) 32);//32(bit 6) is code for a branch
 			}
 			
-			//Age volume for 3 cycles using a leafmap
-			TreeHelper.ageVolume(world, treePos, radius, 32, leafMap, 3);
-			
-			//Rot the unsupported branches
-			species.handleRot(world, endPoints, rootPos, treePos, 0, true);
-			
-			//Allow for special decorations by the tree itself
-			species.postGeneration(world, rootPos, biome, radius, endPoints, !careful);
+			int parent = parents.get(i);
+			if(parent != -1 && lastChild[parent] != i) {
+				areas[parent] += branchRadii[i] * branchRadii[i];
+			}
+		}
 		
-		} else { //The growth failed.. turn the soil back to what it was
-			world.setBlockState(rootPos, initialState, careful ? 3 : 2);
+		smother(leafMap, tree);
+		
+		buffer.setExpansion(nodes, branchRadii, leafMap, ends);
+	}
+	
+	/**
+	 * The off-world twin of {@link #generateFork}.  Branches that would run into the tree itself are cut off
+	 * just like they would be in the world.
+	 */
+	private int expandFork(int[] unfacing, int codePos, BlockPos pos, int parent, boolean disabled, ArrayList<BlockPos> nodes, ArrayList<Integer> parents, HashMap<BlockPos, Integer> occupied) {
+		
+		while(codePos < instructions.size()) {
+			int code = unfacing[instructions.get(codePos)];
+			if(code == forkCode) {
+				codePos = expandFork(unfacing, codePos + 1, pos, parent, disabled, nodes, parents, occupied);
+			} else if(code == returnCode) {
+				return codePos + 1;
+			} else {
+				pos = pos.offset(EnumFacing.getFront(code));
+				if(!disabled) {
+					if(pos.getY() >= 0 && !occupied.containsKey(pos)) {
+						occupied.put(pos, nodes.size());
+						nodes.add(pos);
+						parents.add(parent);
+						parent = nodes.size() - 1;
+					} else {
+						disabled = true;
+					}
+				}
+				codePos++;
+			}
 		}
-
+		
+		return codePos;
 	}
 	
 	/**
 	 * Recursive function that "draws" a branch of a tree
 	 * 
 	 * @param world
+	 * @param writer Writes the branches straight into the chunk sections.  Null to go through the world.
 	 * @param species
 	 * @param codePos
 	 * @param pos
 	 * @param disabled
 	 * @return
 	 */
-	private int generateFork(World world, Species species, int codePos, BlockPos pos, boolean disabled) {
+	private int generateFork(World world, ChunkSectionWriter writer, Species species, int codePos, BlockPos pos, boolean disabled) {
 
 		while(codePos < instructions.size()) {
 			int code = getCode(codePos);
 			if(code == forkCode) {
-				codePos = generateFork(world, species, codePos + 1, pos, disabled);
+				codePos = generateFork(world, writer, species, codePos + 1, pos, disabled);
 			} else if(code == returnCode) {
 				return codePos + 1;
 			} else {
@@ -213,7 +487,11 @@ public class JoCode {
 				pos = pos.offset(dir);
 				if(!disabled) {
 					if(world.getBlockState(pos).getBlock().isReplaceable(world, pos) && (!careful || isClearOfNearbyBranches(world, pos, dir.getOpposite()))) {
-						world.setBlockState(pos, species.getTree().getDynamicBranch().getDefaultState(), careful ? 3 : 2);
+						if(writer != null) {
+							writer.setBlockState(pos, species.getTree().getDynamicBranch().getDefaultState());
+						} else {
+							world.setBlockState(pos, species.getTree().getDynamicBranch().getDefaultState(), 3);
+						}
 					} else {
 						disabled = true;
 					}
@@ -0,0 +1,118 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraft.util.EnumFacing;
+
+/**
+ * The space the branches of a {@link JoCode} take up.  Coordinates are relative to the block above the rooty
+ * dirt with the code facing north.  The bounds are worked out from the instructions alone so they're an upper
+ * limit.  Branches that would be cut off by running into the tree itself are still counted.
+ *
+ * @author ferreusveritas
+ */
+public class JoCodeBounds {
+
+	public final int minX;
+	public final int maxX;
+	public final int minZ;
+	public final int maxZ;
+	public final int height;//The number of blocks the branches reach up including the trunk base
+
+	public JoCodeBounds(int minX, int maxX, int minZ, int maxZ, int height) {
+		this.minX = minX;
+		this.maxX = maxX;
+		this.minZ = minZ;
+		this.maxZ = maxZ;
+		this.height = height;
+	}
+
+	/**
+	 * Traces the instructions without building the tree.
+	 *
+	 * @param instructions The 3 bit instructions of the code
+	 */
+	public static JoCodeBounds of(List<Byte> instructions) {
+		Tracer tracer = new Tracer();
+		for(byte instruction : instructions) {
+			if(!tracer.step(instruction)) {
+				break;
+			}
+		}
+		return tracer.getBounds();
+	}
+
+	/**
+	 * Follows the instructions of a code one at a time.  Lets the bounds be traced straight from packed
+	 * instructions without decoding them into a list first.
+	 */
+	public static class Tracer {
+
+		private int minX = 0, maxX = 0, minZ = 0, maxZ = 0, top = -1;
+
+		//Each fork pushes the position it started from so the return can go back to it
+		private int[] stack = new int[64 * 4];
+		private int sp = 0;
+		private int x = 0, y = -1, z = 0;
+		private boolean disabled = false;
+
+		/**
+		 * @param instruction A 3 bit instruction
+		 * @return false once the code has ended and the rest of the instructions should be ignored
+		 */
+		public boolean step(int instruction) {
+			if(instruction == 6) {//Fork
+				if(sp == stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				stack[sp++] = x;
+				stack[sp++] = y;
+				stack[sp++] = z;
+				stack[sp++] = disabled ? 1 : 0;
+			} else if(instruction == 7) {//Return
+				if(sp == 0) {
+					return false;//Returning from the trunk ends the code
+				}
+				disabled = stack[--sp] != 0;
+				z = stack[--sp];
+				y = stack[--sp];
+				x = stack[--sp];
+			} else {
+				EnumFacing dir = EnumFacing.getFront(instruction);
+				x += dir.getFrontOffsetX();
+				y += dir.getFrontOffsetY();
+				z += dir.getFrontOffsetZ();
+				if(y < 0) {
+					disabled = true;//Branches can't grow into the ground
+				}
+				if(!disabled) {
+					minX = Math.min(minX, x);
+					maxX = Math.max(maxX, x);
+					minZ = Math.min(minZ, z);
+					maxZ = Math.max(maxZ, z);
+					top = Math.max(top, y);
+				}
+			}
+			return true;
+		}
+
+		public JoCodeBounds getBounds() {
+			return new JoCodeBounds(minX, maxX, minZ, maxZ, top + 1);
+		}
+
+	}
+
+	/**
+	 * @return The bounds as they'd be with the code facing the given direction
+	 */
+	public JoCodeBounds rotate(EnumFacing facing) {
+		switch(facing) {
+		case SOUTH: return new JoCodeBounds(-maxX, -minX, -maxZ, -minZ, height);
+		case WEST: return new JoCodeBounds(minZ, maxZ, -maxX, -minX, height);
+		case EAST: return new JoCodeBounds(-maxZ, -minZ, minX, maxX, height);
+		default: return this;
+		}
+	}
+
+}
@@ -0,0 +1,256 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import com.ferreusveritas.dynamictrees.util.MathHelper;
+
+/**
+ * A compact binary collection of {@link JoCode}s indexed by radius.  Codes are kept as their raw
+ * instruction bytes and are only decoded when they are picked.
+ *
+ * <pre><tt>
+ * ┌───────┬─────────┬──────────────────┬───────────────────────┬──────────────────────┐
+ * │ magic │ version │ 7 x int count    │ (total + 1) x int     │ instruction bytes    │
+ * │ JOCP  │ 1       │ for radius 2..8  │ offsets into the data │ 2 instructions each  │
+ * └───────┴─────────┴──────────────────┴───────────────────────┴──────────────────────┘</tt></pre>
+ *
+ * Each instruction byte holds two 3 bit instructions, exactly like a character of the base64 text form.
+ * Packs can be converted from the text form by running this class with the text file and the pack file as
+ * arguments.
+ *
+ * @author ferreusveritas
+ */
+public class JoCodePack {
+
+	public static final String EXTENSION = ".jocodes";
+
+	private static final int MAGIC = 0x4A4F4350;//"JOCP"
+	private static final int VERSION = 1;
+	private static final int RADII = 7;//Radius values 2,3,4,5,6,7,8
+
+	private final int[] firstIndex = new int[RADII + 1];
+	private final int[] offsets;
+	private final ByteBuffer data;
+
+	private JoCodePack(int[] counts, int[] offsets, ByteBuffer data) {
+		for(int r = 0; r < RADII; r++) {
+			firstIndex[r + 1] = firstIndex[r] + counts[r];
+		}
+		this.offsets = offsets;
+		this.data = data;
+	}
+
+	private static int radiusIndex(int radius) {
+		return MathHelper.clamp(radius, 2, 8) - 2;
+	}
+
+	public int getCount(int radius) {
+		int r = radiusIndex(radius);
+		return firstIndex[r + 1] - firstIndex[r];
+	}
+
+	/**
+	 * Traces the bounds of a code straight from it's packed instructions without decoding it
+	 *
+	 * @param radius The radius the code was made for
+	 * @param index The index of the code among the codes for the radius
+	 */
+	public JoCodeBounds getBounds(int radius, int index) {
+		int i = firstIndex[radiusIndex(radius)] + index;
+		JoCodeBounds.Tracer tracer = new JoCodeBounds.Tracer();
+		for(int p = offsets[i]; p < offsets[i + 1]; p++) {
+			int sixbits = data.get(p);
+			if(!tracer.step(sixbits >> 3 & 7) || !tracer.step(sixbits & 7)) {
+				break;
+			}
+		}
+		return tracer.getBounds();
+	}
+
+	/**
+	 * Decodes a code from the pack
+	 *
+	 * @param radius The radius the code was made for
+	 * @param index The index of the code among the codes for the radius
+	 * @return A freshly decoded code
+	 */
+	public JoCode getCode(int radius, int index) {
+		int i = firstIndex[radiusIndex(radius)] + index;
+		int start = offsets[i];
+		int end = offsets[i + 1];
+
+		ArrayList<Byte> instructions = new ArrayList<Byte>((end - start) * 2);
+		for(int p = start; p < end; p++) {
+			int sixbits = data.get(p);
+			instructions.add((byte) (sixbits >> 3 & 7));
+			instructions.add((byte) (sixbits & 7));
+		}
+
+		JoCode code = new JoCode();
+		code.instructions = instructions;
+		return code;
+	}
+
+	public static JoCodePack read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+
+		if(in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+			throw new IOException("Not a JoCode pack");
+		}
+
+		int[] counts = new int[RADII];
+		int total = 0;
+		for(int r = 0; r < RADII; r++) {
+			counts[r] = in.readInt();
+			total += counts[r];
+		}
+
+		int[] offsets = new int[total + 1];
+		for(int i = 0; i <= total; i++) {
+			offsets[i] = in.readInt();
+		}
+
+		byte[] data = new byte[offsets[total]];
+		in.readFully(data);
+
+		return new JoCodePack(counts, offsets, ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Collects codes in their compact form and assembles them into a pack
+	 */
+	public static class Builder {
+
+		private final ArrayList<ByteArrayOutputStream> codes = new ArrayList<ByteArrayOutputStream>(RADII);
+		private final ArrayList<ArrayList<Integer>> lengths = new ArrayList<ArrayList<Integer>>(RADII);
+		private final int[] counts = new int[RADII];
+
+		public Builder() {
+			for(int r = 0; r < RADII; r++) {
+				codes.add(new ByteArrayOutputStream());
+				lengths.add(new ArrayList<Integer>());
+			}
+		}
+
+		/**
+		 * Adds a code in it's base64 text form
+		 */
+		public Builder add(int radius, String code) {
+			int r = radiusIndex(radius);
+			int length = 0;
+			for(int i = 0; i < code.length(); i++) {
+				int sixbits = JoCode.base64.indexOf(code.charAt(i));
+				if(sixbits != -1) {
+					codes.get(r).write(sixbits);
+					length++;
+				}
+			}
+			lengths.get(r).add(length);
+			counts[r]++;
+			return this;
+		}
+
+		/**
+		 * Adds all of the codes of another pack
+		 */
+		public Builder add(JoCodePack pack) {
+			for(int r = 0; r < RADII; r++) {
+				for(int i = pack.firstIndex[r]; i < pack.firstIndex[r + 1]; i++) {
+					for(int p = pack.offsets[i]; p < pack.offsets[i + 1]; p++) {
+						codes.get(r).write(pack.data.get(p));
+					}
+					lengths.get(r).add(pack.offsets[i + 1] - pack.offsets[i]);
+					counts[r]++;
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Adds the codes from the text form.  Each line is a radius and a code separated by a colon.  Lines
+		 * starting with # are comments.
+		 */
+		public Builder addText(InputStream stream) throws IOException {
+			BufferedReader readIn = new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+			String line;
+			while((line = readIn.readLine()) != null) {
+				if((line.length() >= 3) && (line.charAt(0) != '#')) {
+					String[] split = line.split(":");
+					add(Integer.valueOf(split[0]), split[1]);
+				}
+			}
+			return this;
+		}
+
+		public JoCodePack build() {
+			int total = 0;
+			for(int count : counts) {
+				total += count;
+			}
+
+			int[] offsets = new int[total + 1];
+			ByteArrayOutputStream data = new ByteArrayOutputStream();
+			int i = 0;
+			for(int r = 0; r < RADII; r++) {
+				for(int length : lengths.get(r)) {
+					offsets[i + 1] = offsets[i] + length;
+					i++;
+				}
+				data.write(codes.get(r).toByteArray(), 0, codes.get(r).size());
+			}
+
+			return new JoCodePack(counts.clone(), offsets, ByteBuffer.wrap(data.toByteArray()));
+		}
+
+	}
+
+	public void write(OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		for(int r = 0; r < RADII; r++) {
+			out.writeInt(firstIndex[r + 1] - firstIndex[r]);
+		}
+		for(int offset : offsets) {
+			out.writeInt(offset);
+		}
+		out.write(data.array(), 0, offsets[offsets.length - 1]);
+		out.flush();
+	}
+
+	/**
+	 * Converts a text JoCode file into a pack
+	 *
+	 * @param args The text file followed by the pack file to write
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length != 2) {
+			System.err.println("Usage: JoCodePack <codes.txt> <codes" + EXTENSION + ">");
+			return;
+		}
+
+		JoCodePack pack;
+		try (InputStream in = new FileInputStream(args[0])) {
+			pack = new Builder().addText(in).build();
+		}
+
+		try (OutputStream out = new FileOutputStream(args[1])) {
+			pack.write(out);
+		}
+
+		int total = pack.offsets.length - 1;
+		System.out.println("Packed " + total + " codes into " + args[1]);
+	}
+
+}
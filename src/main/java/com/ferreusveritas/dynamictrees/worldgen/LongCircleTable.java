@@ -0,0 +1,146 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.function.BiPredicate;
+
+/**
+ * An open addressing hash table that maps packed chunk coordinates to {@link ChunkCircleSet}s.  Keys are
+ * primitive longs so lookups don't allocate anything.  Collisions are resolved by linear probing and removals
+ * shift the following entries back so that no tombstones are left behind.
+ *
+ * @author ferreusveritas
+ */
+public class LongCircleTable {
+
+	private long[] keys;
+	private ChunkCircleSet[] values;//A null value marks an empty slot
+	private int mask;
+	private int size;
+
+	public LongCircleTable() {
+		this(64);
+	}
+
+	public LongCircleTable(int capacity) {
+		allocate(Integer.highestOneBit(Math.max(capacity, 4) - 1) << 1);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new ChunkCircleSet[capacity];
+		mask = capacity - 1;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;//Fibonacci hashing spreads neighboring chunks across the table
+		return (int)(h ^ (h >>> 32));
+	}
+
+	private int findSlot(long key) {
+		for(int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+			if(keys[i] == key) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public ChunkCircleSet get(long key) {
+		int slot = findSlot(key);
+		return slot >= 0 ? values[slot] : null;
+	}
+
+	/**
+	 * @return The previous value for the key or null if there was none
+	 */
+	public ChunkCircleSet put(long key, ChunkCircleSet value) {
+		if((size + 1) * 4 > keys.length * 3) {//Keep the load factor under 0.75
+			rehash(keys.length << 1);
+		}
+
+		int i = hash(key) & mask;
+		for(; values[i] != null; i = (i + 1) & mask) {
+			if(keys[i] == key) {
+				ChunkCircleSet old = values[i];
+				values[i] = value;
+				return old;
+			}
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		return null;
+	}
+
+	/**
+	 * @return The removed value or null if there was none
+	 */
+	public ChunkCircleSet remove(long key) {
+		int i = findSlot(key);
+		if(i < 0) {
+			return null;
+		}
+
+		ChunkCircleSet old = values[i];
+		values[i] = null;
+		size--;
+
+		//Shift back any following entries that would no longer be reachable across the gap
+		for(int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+			int home = hash(keys[j]) & mask;
+			boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+			if(!reachable) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				values[j] = null;
+				i = j;
+			}
+		}
+
+		return old;
+	}
+
+	/**
+	 * Removes all of the entries that pass the filter
+	 *
+	 * @return The number of entries removed
+	 */
+	public int removeIf(BiPredicate<Long, ChunkCircleSet> filter) {
+		long[] doomed = new long[size];
+		int count = 0;
+
+		for(int i = 0; i < values.length; i++) {
+			if(values[i] != null && filter.test(keys[i], values[i])) {
+				doomed[count++] = keys[i];
+			}
+		}
+
+		for(int i = 0; i < count; i++) {
+			remove(doomed[i]);
+		}
+
+		return count;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		ChunkCircleSet[] oldValues = values;
+		allocate(capacity);
+		size = 0;
+
+		for(int i = 0; i < oldValues.length; i++) {
+			if(oldValues[i] != null) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+}
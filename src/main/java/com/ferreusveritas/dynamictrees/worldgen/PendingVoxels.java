@@ -0,0 +1,240 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ferreusveritas.dynamictrees.ModConstants;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraftforge.common.util.Constants.NBT;
+
+/**
+ * Holds the parts of worldgen trees that would have landed in chunks that weren't generated yet.  Instead of
+ * clipping the canopy at the chunk seam the leaves are queued for the chunk they belong to and are placed as
+ * soon as that chunk has been generated.  This way trees come out whole and don't have to regrow the missing
+ * leaves with random ticks.
+ *
+ * The chunks the voxels belong to don't exist yet so they can't carry the voxels themselves.  Like the
+ * {@link CircleStore} the queue is kept in one small file for each region of 32x32 chunks alongside the world
+ * save.  Only the regions that worldgen has touched recently are held in memory.  Dirty regions are written
+ * out when the world saves and regions that weren't touched since the save before are dropped from memory.
+ * A chunk's entry is dropped as soon as it's applied.
+ *
+ * @author ferreusveritas
+ */
+public class PendingVoxels {
+
+	private static final Map<World, PendingVoxels> worlds = new WeakHashMap<World, PendingVoxels>();
+
+	private final File directory;
+	private final HashMap<Long, Region> regions = new HashMap<Long, Region>();//regionKey -> region
+
+	/** The queued voxels of a region of chunks */
+	private static class Region {
+		final HashMap<Integer, HashMap<Integer, Integer>> chunks = new HashMap<Integer, HashMap<Integer, Integer>>();//chunk index -> (local pos -> state id)
+		boolean dirty = false;
+		boolean used = true;
+	}
+
+	public PendingVoxels(File directory) {
+		this.directory = directory;
+	}
+
+	public static synchronized PendingVoxels get(World world) {
+		return worlds.computeIfAbsent(world, w -> {
+			String folder = w.provider.getSaveFolder();
+			File worldDirectory = folder != null ? new File(w.getSaveHandler().getWorldDirectory(), folder) : w.getSaveHandler().getWorldDirectory();
+			return new PendingVoxels(new File(worldDirectory, "data/" + ModConstants.MODID + "/pending"));
+		});
+	}
+
+	/**
+	 * Writes out the queue of the world if it has one
+	 */
+	public static synchronized void saveWorld(World world) {
+		PendingVoxels pending = worlds.get(world);
+		if(pending != null) {
+			pending.flush();
+		}
+	}
+
+	public static synchronized void unloadWorld(World world) {
+		PendingVoxels pending = worlds.remove(world);
+		if(pending != null) {
+			pending.flush();
+		}
+	}
+
+	private static long regionKey(int chunkX, int chunkZ) {
+		return ChunkPos.asLong(chunkX >> CircleRegion.SHIFT, chunkZ >> CircleRegion.SHIFT);
+	}
+
+	private static int chunkIndex(int chunkX, int chunkZ) {
+		int mask = (1 << CircleRegion.SHIFT) - 1;
+		return (chunkZ & mask) << CircleRegion.SHIFT | (chunkX & mask);
+	}
+
+	private static int localPos(BlockPos pos) {
+		return pos.getY() << 8 | (pos.getZ() & 15) << 4 | (pos.getX() & 15);
+	}
+
+	private File getRegionFile(long regionKey) {
+		return new File(directory, "r." + (int)regionKey + "." + (int)(regionKey >> 32) + ".dtp");
+	}
+
+	private Region getRegion(int chunkX, int chunkZ) {
+		long regionKey = regionKey(chunkX, chunkZ);
+		Region region = regions.get(regionKey);
+
+		if(region == null) {
+			region = new Region();
+			File file = getRegionFile(regionKey);
+			if(file.exists()) {
+				try (InputStream stream = new FileInputStream(file)) {
+					readFromNBT(region, CompressedStreamTools.readCompressed(stream));
+				} catch (IOException e) {
+					Logger.getLogger(ModConstants.MODID).log(Level.WARNING, "Unable to read pending voxels from " + file, e);
+				}
+			}
+			regions.put(regionKey, region);
+		}
+
+		region.used = true;
+		return region;
+	}
+
+	/**
+	 * Queues a block to be placed once the chunk it's in has been generated
+	 */
+	public synchronized void add(BlockPos pos, IBlockState state) {
+		if(pos.getY() < 0 || pos.getY() >= 256) {
+			return;
+		}
+		int chunkX = pos.getX() >> 4;
+		int chunkZ = pos.getZ() >> 4;
+		Region region = getRegion(chunkX, chunkZ);
+		region.chunks.computeIfAbsent(chunkIndex(chunkX, chunkZ), k -> new HashMap<Integer, Integer>()).put(localPos(pos), Block.getStateId(state));
+		region.dirty = true;
+	}
+
+	/**
+	 * Places everything that was queued for a chunk.  The chunk must be generated.  Queued blocks only replace
+	 * blocks that are replaceable.
+	 *
+	 * @return The number of blocks that were placed
+	 */
+	public synchronized int apply(World world, int chunkX, int chunkZ) {
+		Region region = getRegion(chunkX, chunkZ);
+		HashMap<Integer, Integer> voxels = region.chunks.remove(chunkIndex(chunkX, chunkZ));
+		if(voxels == null) {
+			return 0;
+		}
+		region.dirty = true;
+
+		ChunkSectionWriter writer = new ChunkSectionWriter(world);
+		int placed = 0;
+		for(Map.Entry<Integer, Integer> voxel : voxels.entrySet()) {
+			int local = voxel.getKey();
+			BlockPos pos = new BlockPos(chunkX << 4 | (local & 15), local >> 8, chunkZ << 4 | (local >> 4 & 15));
+			if(world.getBlockState(pos).getBlock().isReplaceable(world, pos)) {
+				writer.setBlockState(pos, Block.getStateById(voxel.getValue()));
+				placed++;
+			}
+		}
+		writer.flush();
+
+		return placed;
+	}
+
+	/**
+	 * Writes every region that changed out to disk and drops the regions that weren't used since the last flush.
+	 * Regions that have nothing left in them have their files deleted.
+	 */
+	public synchronized void flush() {
+		Iterator<Map.Entry<Long, Region>> iter = regions.entrySet().iterator();
+		while(iter.hasNext()) {
+			Map.Entry<Long, Region> entry = iter.next();
+			Region region = entry.getValue();
+
+			if(region.dirty) {
+				File file = getRegionFile(entry.getKey());
+				if(region.chunks.isEmpty()) {
+					file.delete();
+				} else {
+					directory.mkdirs();
+					File temp = new File(directory, file.getName() + ".tmp");
+					try (OutputStream stream = new FileOutputStream(temp)) {
+						CompressedStreamTools.writeCompressed(writeToNBT(region), stream);
+					} catch (IOException e) {
+						Logger.getLogger(ModConstants.MODID).log(Level.WARNING, "Unable to write pending voxels to " + file, e);
+						continue;
+					}
+					file.delete();
+					temp.renameTo(file);
+				}
+				region.dirty = false;
+			}
+
+			if(region.used) {
+				region.used = false;
+			} else {
+				iter.remove();
+			}
+		}
+	}
+
+	private static void readFromNBT(Region region, NBTTagCompound tag) {
+		NBTTagList chunkList = tag.getTagList("chunks", NBT.TAG_COMPOUND);
+		for(int c = 0; c < chunkList.tagCount(); c++) {
+			NBTTagCompound chunkTag = chunkList.getCompoundTagAt(c);
+			int[] data = chunkTag.getIntArray("voxels");//Pairs of local position and state id
+			HashMap<Integer, Integer> voxels = new HashMap<Integer, Integer>();
+			for(int i = 0; i + 1 < data.length; i += 2) {
+				voxels.put(data[i], data[i + 1]);
+			}
+			if(!voxels.isEmpty()) {
+				region.chunks.put(chunkTag.getInteger("chunk"), voxels);
+			}
+		}
+	}
+
+	private static NBTTagCompound writeToNBT(Region region) {
+		NBTTagList chunkList = new NBTTagList();
+
+		for(Map.Entry<Integer, HashMap<Integer, Integer>> chunk : region.chunks.entrySet()) {
+			NBTTagCompound chunkTag = new NBTTagCompound();
+			chunkTag.setInteger("chunk", chunk.getKey());
+			int[] data = new int[chunk.getValue().size() * 2];
+			int i = 0;
+			for(Map.Entry<Integer, Integer> voxel : chunk.getValue().entrySet()) {
+				data[i++] = voxel.getKey();
+				data[i++] = voxel.getValue();
+			}
+			chunkTag.setTag("voxels", new NBTTagIntArray(data));
+			chunkList.appendTag(chunkTag);
+		}
+
+		NBTTagCompound tag = new NBTTagCompound();
+		tag.setTag("chunks", chunkList);
+		return tag;
+	}
+
+}
@@ -0,0 +1,235 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ferreusveritas.dynamictrees.ModConstants;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.gen.ChunkProviderServer;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldSavedData;
+
+/**
+ * Generates and populates a rectangular area of chunks a slice of every server tick.  The progress is saved
+ * with the world so an interrupted task carries on after a restart.
+ *
+ * Chunks are generated in bands that line up with the {@link CircleRegion}s, column by column, so the circles
+ * solved for each chunk are still cached when it's neighbors are solved.  A chunk is populated once the chunks
+ * to it's east, south and south east exist so the area is generated one chunk further in those directions.
+ * Columns that are two behind the one being generated are finished and are queued to be saved and unloaded.
+ *
+ * @author ferreusveritas
+ */
+public class PregenTask extends WorldSavedData {
+
+	public static final String DATA_NAME = ModConstants.MODID + "_pregen";
+
+	private static final int BAND = 1 << CircleRegion.SHIFT;
+	private static final long REPORT_INTERVAL = 10000000000L;//10 seconds
+
+	//Saved state
+	private boolean running = false;
+	private int minX, minZ, maxX, maxZ;//Chunk coordinates of the generated area including the extra row and column
+	private int bandZ;//The first row of the current band
+	private int cursorX, cursorZ;//The next chunk to generate
+	private int budget = 40;//Milliseconds per tick
+	private long generated = 0;
+
+	//Session statistics
+	private long sessionStart;
+	private long sessionChunks;
+	private long sessionTreeNanos;
+	private long lastReport;
+
+	public PregenTask() {
+		this(DATA_NAME);
+	}
+
+	public PregenTask(String name) {
+		super(name);
+	}
+
+	public static PregenTask get(World world) {
+		MapStorage storage = world.getPerWorldStorage();
+		PregenTask task = (PregenTask) storage.getOrLoadData(PregenTask.class, DATA_NAME);
+
+		if(task == null) {
+			task = new PregenTask();
+			storage.setData(DATA_NAME, task);
+		}
+
+		return task;
+	}
+
+	/**
+	 * Starts generating a new area.  Any previous task is replaced.
+	 *
+	 * @param chunkX1 Chunk coordinates of one corner
+	 * @param chunkZ1
+	 * @param chunkX2 Chunk coordinates of the opposite corner
+	 * @param chunkZ2
+	 * @param budget Milliseconds of each tick to spend generating
+	 */
+	public void start(int chunkX1, int chunkZ1, int chunkX2, int chunkZ2, int budget) {
+		minX = Math.min(chunkX1, chunkX2);
+		minZ = Math.min(chunkZ1, chunkZ2);
+		maxX = Math.max(chunkX1, chunkX2) + 1;
+		maxZ = Math.max(chunkZ1, chunkZ2) + 1;
+		bandZ = minZ;
+		cursorX = minX;
+		cursorZ = minZ;
+		this.budget = budget;
+		generated = 0;
+		setRunning(true);
+	}
+
+	public void setRunning(boolean running) {
+		this.running = running && !isFinished();
+		sessionStart = 0;
+		markDirty();
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	public boolean isFinished() {
+		return bandZ > maxZ;
+	}
+
+	public long getTotal() {
+		return (long)(maxX - minX + 1) * (maxZ - minZ + 1);
+	}
+
+	private int getBandEnd() {
+		return Math.min(bandZ | (BAND - 1), maxZ);
+	}
+
+	/**
+	 * Called at the end of every world tick
+	 */
+	public void update(WorldServer world) {
+		if(!running) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		TreeGenerator treeGenerator = TreeGenerator.getTreeGenerator();
+		if(sessionStart == 0) {
+			sessionStart = lastReport = start;
+			sessionChunks = 0;
+			sessionTreeNanos = treeGenerator.getPopulationNanos();
+		}
+
+		ChunkProviderServer provider = world.getChunkProvider();
+		while(System.nanoTime() - start < budget * 1000000L) {
+			provider.provideChunk(cursorX, cursorZ);
+			generated++;
+			sessionChunks++;
+
+			if(++cursorZ > getBandEnd()) {//Column finished
+				unloadColumn(provider, cursorX - 2);
+				cursorZ = bandZ;
+				if(++cursorX > maxX) {//Band finished
+					unloadColumn(provider, maxX - 1);
+					unloadColumn(provider, maxX);
+					cursorX = minX;
+					bandZ = getBandEnd() + 1;
+					cursorZ = bandZ;
+					if(isFinished()) {
+						running = false;
+						report(world, treeGenerator, "Finished");
+						break;
+					}
+				}
+			}
+		}
+
+		markDirty();
+
+		long now = System.nanoTime();
+		if(running && now - lastReport > REPORT_INTERVAL) {
+			lastReport = now;
+			report(world, treeGenerator, "Progress");
+		}
+	}
+
+	/**
+	 * Queues the finished chunks of a column in the current band to be saved and unloaded.  The last row of
+	 * the band is kept for populating the first row of the next band.
+	 */
+	private void unloadColumn(ChunkProviderServer provider, int chunkX) {
+		if(chunkX < minX) {
+			return;
+		}
+
+		int bandEnd = getBandEnd();
+		int firstZ = bandZ > minZ ? bandZ - 1 : bandZ;//The last row of the previous band is finished now too
+		int lastZ = bandEnd == maxZ ? bandEnd : bandEnd - 1;
+
+		for(int z = firstZ; z <= lastZ; z++) {
+			Chunk chunk = provider.getLoadedChunk(chunkX, z);
+			if(chunk != null) {
+				provider.queueUnload(chunk);
+			}
+		}
+	}
+
+	public String getStatus() {
+		if(getTotal() <= 0 || (!running && generated == 0)) {
+			return "No pregeneration task";
+		}
+
+		String state = running ? "Running" : isFinished() ? "Finished" : "Paused";
+		String status = state + ": " + generated + "/" + getTotal() + " chunks (" + (generated * 100 / getTotal()) + "%)";
+
+		if(running && sessionStart != 0) {
+			double seconds = (System.nanoTime() - sessionStart) / 1000000000.0;
+			double treeSeconds = (TreeGenerator.getTreeGenerator().getPopulationNanos() - sessionTreeNanos) / 1000000000.0;
+			status += String.format(", %.1f chunks/s, %.1fs of %.1fs in tree generation", sessionChunks / seconds, treeSeconds, seconds);
+		}
+
+		return status;
+	}
+
+	private void report(World world, TreeGenerator treeGenerator, String what) {
+		double seconds = (System.nanoTime() - sessionStart) / 1000000000.0;
+		double treeSeconds = (treeGenerator.getPopulationNanos() - sessionTreeNanos) / 1000000000.0;
+		Logger.getLogger(ModConstants.MODID).log(Level.INFO, String.format("Pregen %s: %d/%d chunks, %.1f chunks/s, %.1fs of %.1fs in tree generation",
+			what.toLowerCase(), generated, getTotal(), sessionChunks / Math.max(seconds, 0.001), treeSeconds, seconds));
+	}
+
+	@Override
+	public void readFromNBT(NBTTagCompound nbt) {
+		running = nbt.getBoolean("running");
+		minX = nbt.getInteger("minX");
+		minZ = nbt.getInteger("minZ");
+		maxX = nbt.getInteger("maxX");
+		maxZ = nbt.getInteger("maxZ");
+		bandZ = nbt.getInteger("bandZ");
+		cursorX = nbt.getInteger("cursorX");
+		cursorZ = nbt.getInteger("cursorZ");
+		budget = nbt.getInteger("budget");
+		generated = nbt.getLong("generated");
+	}
+
+	@Override
+	public NBTTagCompound writeToNBT(NBTTagCompound nbt) {
+		nbt.setBoolean("running", running);
+		nbt.setInteger("minX", minX);
+		nbt.setInteger("minZ", minZ);
+		nbt.setInteger("maxX", maxX);
+		nbt.setInteger("maxZ", maxZ);
+		nbt.setInteger("bandZ", bandZ);
+		nbt.setInteger("cursorX", cursorX);
+		nbt.setInteger("cursorZ", cursorZ);
+		nbt.setInteger("budget", budget);
+		nbt.setLong("generated", generated);
+		return nbt;
+	}
+
+}
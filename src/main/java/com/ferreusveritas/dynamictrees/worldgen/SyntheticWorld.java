@@ -0,0 +1,166 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.init.Blocks;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.util.datafix.DataFixesManager;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.GameType;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProviderSurface;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.BiomeProvider;
+import net.minecraft.world.biome.BiomeProviderSingle;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkPrimer;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.gen.NoiseGeneratorPerlin;
+import net.minecraft.world.storage.SaveHandler;
+import net.minecraft.world.storage.WorldInfo;
+
+/**
+ * An overworld that only exists in memory.  Chunks are made of stone, dirt and grass with a single biome and
+ * are either flat or rolling hills.  Unlike the {@link VoxelWorld} it has real chunks with heightmaps and
+ * lighting so worldgen runs through exactly the same code as it does in the game.
+ *
+ * Chunks are never saved and entities are never spawned.
+ *
+ * @author ferreusveritas
+ */
+public class SyntheticWorld extends World {
+
+	public enum Terrain {
+		FLAT,
+		NOISE
+	}
+
+	private final Terrain terrain;
+	private final Biome biome;
+	private final BiomeProvider biomeProvider;
+	private final NoiseGeneratorPerlin noise;
+	private final SyntheticChunkProvider chunks;
+
+	/**
+	 * @param directory The directory the world's data is saved in.  Worldgen keeps some of it's data on disk.
+	 * @param seed The world seed
+	 * @param terrain The shape of the ground
+	 * @param biome The biome of every block in the world
+	 */
+	public SyntheticWorld(File directory, long seed, Terrain terrain, Biome biome) {
+		super(new SaveHandler(directory.getParentFile(), directory.getName(), false, DataFixesManager.createFixer()), new WorldInfo(new WorldSettings(seed, GameType.SURVIVAL, false, false, WorldType.DEFAULT), "dynamictrees_synthetic"), new WorldProviderSurface(), new Profiler(), false);
+		this.terrain = terrain;
+		this.biome = biome;
+		this.biomeProvider = new BiomeProviderSingle(biome);
+		this.noise = new NoiseGeneratorPerlin(new Random(seed), 1);
+		this.chunks = new SyntheticChunkProvider();
+		this.chunkProvider = chunks;
+		provider.setWorld(this);//Sets up sky light
+	}
+
+	/**
+	 * @return The y coordinate of the grass block in the column
+	 */
+	public int getGroundHeight(int x, int z) {
+		if(terrain == Terrain.FLAT) {
+			return 64;
+		}
+		return 64 + (int) (noise.getValue(x / 64.0, z / 64.0) * 8);
+	}
+
+	/**
+	 * Generates the terrain of a chunk if it hasn't been generated yet.  Population is left to the caller.
+	 */
+	public Chunk generateChunk(int chunkX, int chunkZ) {
+		return chunks.provideChunk(chunkX, chunkZ);
+	}
+
+	/**
+	 * The provider's own biome provider would give the overworld's biomes for the seed
+	 */
+	@Override
+	public BiomeProvider getBiomeProvider() {
+		return biomeProvider;
+	}
+
+	@Override
+	protected IChunkProvider createChunkProvider() {
+		return chunkProvider;//Set in the constructor since it needs the terrain settings
+	}
+
+	@Override
+	protected boolean isChunkLoaded(int x, int z, boolean allowEmpty) {
+		return chunks.getLoadedChunk(x, z) != null;
+	}
+
+	@Override
+	public boolean spawnEntity(Entity entity) {
+		return false;
+	}
+
+	private class SyntheticChunkProvider implements IChunkProvider {
+
+		private final HashMap<Long, Chunk> loaded = new HashMap<Long, Chunk>();
+
+		@Override
+		public Chunk getLoadedChunk(int x, int z) {
+			return loaded.get(ChunkPos.asLong(x, z));
+		}
+
+		@Override
+		public Chunk provideChunk(int x, int z) {
+			Chunk chunk = getLoadedChunk(x, z);
+			if(chunk == null) {
+				chunk = generate(x, z);
+				loaded.put(ChunkPos.asLong(x, z), chunk);
+			}
+			return chunk;
+		}
+
+		private Chunk generate(int chunkX, int chunkZ) {
+			ChunkPrimer primer = new ChunkPrimer();
+			IBlockState stone = Blocks.STONE.getDefaultState();
+			IBlockState dirt = Blocks.DIRT.getDefaultState();
+			IBlockState grass = Blocks.GRASS.getDefaultState();
+
+			for(int z = 0; z < 16; z++) {
+				for(int x = 0; x < 16; x++) {
+					int height = getGroundHeight(chunkX << 4 | x, chunkZ << 4 | z);
+					primer.setBlockState(x, 0, z, Blocks.BEDROCK.getDefaultState());
+					for(int y = 1; y <= height; y++) {
+						primer.setBlockState(x, y, z, y == height ? grass : y > height - 4 ? dirt : stone);
+					}
+				}
+			}
+
+			Chunk chunk = new Chunk(SyntheticWorld.this, primer, chunkX, chunkZ);
+			Arrays.fill(chunk.getBiomeArray(), (byte) Biome.getIdForBiome(biome));
+			chunk.generateSkylightMap();
+			return chunk;
+		}
+
+		@Override
+		public boolean tick() {
+			return false;
+		}
+
+		@Override
+		public String makeString() {
+			return "SyntheticChunkProvider: " + loaded.size();
+		}
+
+		@Override
+		public boolean isChunkGeneratedAt(int x, int z) {
+			return loaded.containsKey(ChunkPos.asLong(x, z));
+		}
+
+	}
+
+}
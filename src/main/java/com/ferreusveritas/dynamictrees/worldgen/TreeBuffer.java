@@ -0,0 +1,141 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ferreusveritas.dynamictrees.blocks.BlockBranch;
+import com.ferreusveritas.dynamictrees.trees.Species;
+import com.ferreusveritas.dynamictrees.util.MathHelper;
+import com.ferreusveritas.dynamictrees.util.SafeChunkBounds;
+import com.ferreusveritas.dynamictrees.util.SimpleVoxmap;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * A worldgen tree that is picked on the generation thread and expanded into a private voxel buffer off of
+ * it.  Expanding decodes the tree, inflates it's branches and stamps and smothers it's leaves without ever
+ * touching the world so the trees of a chunk can all be expanded at the same time on different threads.
+ *
+ * Everything in the buffer is relative to the block above the rooty dirt.  Committing the buffer to the
+ * world, along with the collision checks, aging and rot, is done by {@link JoCode#generate} on the
+ * generation thread.
+ *
+ * @author ferreusveritas
+ */
+public class TreeBuffer {
+
+	private final Species species;
+	private final JoCode code;
+	private final EnumFacing facing;
+	private final int radius;
+
+	private BlockPos[] branches;
+	private int[] branchRadii;
+	private SimpleVoxmap leafMap;
+	private List<BlockPos> ends;
+	private boolean expanded = false;
+
+	public TreeBuffer(Species species, JoCode code, EnumFacing facing, int radius) {
+		this.species = species;
+		this.code = code;
+		this.facing = facing;
+		this.radius = MathHelper.clamp(radius, 2, 8);//A Tree generation boundary radius is at least 2 and at most 8
+	}
+
+	public Species getSpecies() {
+		return species;
+	}
+
+	public JoCode getCode() {
+		return code;
+	}
+
+	public EnumFacing getFacing() {
+		return facing;
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Expands the tree.  Safe to call from any thread.
+	 */
+	public TreeBuffer expand() {
+		if(!expanded) {
+			code.expand(this);
+		}
+		return this;
+	}
+
+	void setExpansion(List<BlockPos> nodes, int[] branchRadii, SimpleVoxmap leafMap, List<BlockPos> ends) {
+		this.branches = nodes.toArray(new BlockPos[nodes.size()]);
+		this.branchRadii = branchRadii;
+		this.leafMap = leafMap;
+		this.ends = ends;
+		this.expanded = true;
+	}
+
+	/**
+	 * @return true if the tree was expanded and has at least one branch
+	 */
+	public boolean isExpanded() {
+		return expanded;
+	}
+
+	/**
+	 * A tree whose template fits is pasted from the template so there's no need to expand it.
+	 *
+	 * @param world The world
+	 * @param rootPos The position of what will become the rooty dirt block
+	 * @param safeBounds The area that is safe to place blocks in
+	 * @return true if the tree's template can be pasted at the position
+	 */
+	public boolean templateFits(World world, BlockPos rootPos, SafeChunkBounds safeBounds) {
+		return code.templateFits(world, species, rootPos, facing, radius, safeBounds);
+	}
+
+	/**
+	 * @param world The world
+	 * @param rootPos The position of what will become the rooty dirt block
+	 * @return true if none of the branches collide with anything in the world
+	 */
+	public boolean fits(World world, BlockPos rootPos) {
+		BlockPos treePos = rootPos.up();
+		for(BlockPos branch : branches) {
+			BlockPos pos = treePos.add(branch);
+			if(!world.getBlockState(pos).getBlock().isReplaceable(world, pos)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public void placeBranches(ChunkSectionWriter writer, BlockPos rootPos) {
+		BlockPos treePos = rootPos.up();
+		IBlockState branchState = species.getTree().getDynamicBranch().getDefaultState();
+		for(int i = 0; i < branches.length; i++) {
+			writer.setBlockState(treePos.add(branches[i]), branchState.withProperty(BlockBranch.RADIUS, branchRadii[i]));
+		}
+	}
+
+	/**
+	 * Moves the leaf map into world coordinates.  The buffer is single use so the map isn't copied.
+	 */
+	public SimpleVoxmap getLeafMap(BlockPos rootPos) {
+		return leafMap.setMapAndCenter(rootPos.up(), new BlockPos(radius, 0, radius));
+	}
+
+	public List<BlockPos> getEnds(BlockPos rootPos) {
+		BlockPos treePos = rootPos.up();
+		ArrayList<BlockPos> endPoints = new ArrayList<BlockPos>(ends.size());
+		for(BlockPos end : ends) {
+			endPoints.add(treePos.add(end));
+		}
+		return endPoints;
+	}
+
+}
@@ -1,11 +1,9 @@
 package com.ferreusveritas.dynamictrees.worldgen;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Random;
@@ -23,62 +21,117 @@ import net.minecraft.util.EnumFacing;
  * Stores JoCodes by radius.  Can be used to call random JoCodes
  * during worldgen.
  * 
+ * The code files aren't read until a code is first needed.  They are then kept as a compact
+ * {@link JoCodePack} and only the codes that are actually picked are decoded.  A binary pack file
+ * next to a text file is used in it's place.
+ * 
+ * The bounds of a code are traced straight from the pack the first time a site needs them so worldgen can
+ * skip over codes that won't fit without having to decode them.
+ * 
  * @author ferreusveritas
  *
  */
 public class TreeCodeStore {
 
-	ArrayList<ArrayList<JoCode>> store = new ArrayList<ArrayList<JoCode>>(7);//Radius values 2,3,4,5,6,7,8
 	Species species;
+	private final ArrayList<String> files = new ArrayList<String>();
+	private JoCodePack.Builder builder = new JoCodePack.Builder();//Only kept while codes are being added
+	private JoCodePack pack;
+	private JoCode[][] decoded;//Codes that have been picked so far by radius index
+	private JoCodeBounds[][] bounds;//The bounds of the codes that have been traced so far by radius index
 	
 	public TreeCodeStore(Species tree) {
 		this.species = tree;
-		for(int i = 0; i < 7; i++) {
-			store.add(new ArrayList<JoCode>());
+	}
+	
+	public synchronized void addCodesFromFile(String filename) {
+		files.add(filename);
+		reopen();
+	}
+
+	public void addCode(int radius, String code) {
+		//Code reserved for collecting WorldGen JoCodes
+		//collectWorldGenCodes(tree, radius, new JoCode(code));
+
+		synchronized(this) {
+			reopen();
+			builder.add(radius, code);
 		}
 	}
 	
-	private ArrayList<JoCode> getListForRadius(int radius) {
-		radius = MathHelper.clamp(radius, 2, 8);
-		return store.get(radius - 2);
+	/**
+	 * Prepares to add more codes to an already built pack.  The pack is rebuilt on next use.
+	 */
+	private void reopen() {
+		if(builder == null) {
+			builder = new JoCodePack.Builder().add(pack);
+		}
+		pack = null;
+	}
+	
+	private synchronized JoCodePack getPack() {
+		if(pack == null) {
+			for(String filename : files) {
+				loadFile(filename);
+			}
+			files.clear();
+			
+			pack = builder.build();
+			builder = null;
+			resetCaches();
+		}
+		
+		return pack;
+	}
+	
+	private void resetCaches() {
+		decoded = new JoCode[7][];
+		bounds = new JoCodeBounds[7][];
+		for(int r = 0; r < 7; r++) {
+			int count = pack.getCount(r + 2);
+			decoded[r] = new JoCode[count];
+			bounds[r] = new JoCodeBounds[count];
+		}
+	}
+	
+	/**
+	 * Forgets every decoded code along with it's simulated templates and every traced bound.  They're all
+	 * worked out again as they're needed.
+	 */
+	public synchronized void clearCaches() {
+		if(pack != null) {
+			resetCaches();
+		}
 	}
 	
-	public void addCodesFromFile(String filename) {
+	private void loadFile(String filename) {
+		String packname = filename.endsWith(".txt") ? filename.substring(0, filename.length() - 4) + JoCodePack.EXTENSION : filename;
+		InputStream packStream = getClass().getClassLoader().getResourceAsStream(packname);
+		
 		try {
-			Logger.getLogger(ModConstants.MODID).log(Level.CONFIG, "Loading Tree Codes for species \"" + species + "\" from file: " + filename);
-			InputStream stream = getClass().getClassLoader().getResourceAsStream(filename);
-			if(stream != null) {
-				InputStreamReader streamReader = new InputStreamReader(stream, "UTF-8");
-				BufferedReader readIn = new BufferedReader(streamReader);
-				String line;
-				while((line = readIn.readLine()) != null) {
-					if((line.length() >= 3) && (line.charAt(0) != '#')) {
-						String[] split = line.split(":");
-						addCode(Integer.valueOf(split[0]), split[1]);
-					}
+			if(packStream != null) {
+				Logger.getLogger(ModConstants.MODID).log(Level.CONFIG, "Loading Tree Code pack for species \"" + species + "\" from file: " + packname);
+				try (InputStream stream = new BufferedInputStream(packStream)) {
+					builder.add(JoCodePack.read(stream));
 				}
 			} else {
-				throw(new FileNotFoundException(filename));
+				Logger.getLogger(ModConstants.MODID).log(Level.CONFIG, "Loading Tree Codes for species \"" + species + "\" from file: " + filename);
+				InputStream stream = getClass().getClassLoader().getResourceAsStream(filename);
+				if(stream != null) {
+					try (InputStream in = stream) {
+						builder.addText(in);
+					}
+				} else {
+					throw(new FileNotFoundException(filename));
+				}
 			}
-			
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
-	public void addCode(int radius, String code) {
-		JoCode joCode = new JoCode(code).setCareful(false);
-		
-		//Code reserved for collecting WorldGen JoCodes
-		//collectWorldGenCodes(tree, radius, joCode);
-
-		getListForRadius(radius).add(joCode);
-	}
-
 	/**
 	 * This collects a list of trees and creates 4 variations for the 4 directions and then
 	 * sorts them alphanumerically.  By sorting the rotated JoCodes you can eliminate duplicates
@@ -100,13 +153,62 @@ public class TreeCodeStore {
 		System.out.println(species + ":" + radius + ":" + arr.get(0));
 	}
 	
-	public JoCode getRandomCode(int radius, Random rand) {		
-		ArrayList<JoCode> list = getListForRadius(radius);
-		if(!list.isEmpty()) {
-			return list.get(rand.nextInt(list.size()));
+	public JoCode getRandomCode(int radius, Random rand) {
+		return getRandomCode(radius, rand, EnumFacing.NORTH, null);
+	}
+	
+	/**
+	 * Picks a random code that fits at a site.  The first random number is drawn exactly as it would be without
+	 * a site.  If the code it lands on doesn't fit then another is picked at random from the codes that do.
+	 * Either way every code that fits is equally likely.  When none of them fit the code that was landed on is
+	 * used anyway.
+	 * 
+	 * @param radius The radius of the tree generation boundary
+	 * @param rand The random number generator
+	 * @param facing The direction the code will face
+	 * @param site The space available for the tree or null to pick any code
+	 */
+	public JoCode getRandomCode(int radius, Random rand, EnumFacing facing, TreeSite site) {
+		JoCodePack pack = getPack();
+		radius = MathHelper.clamp(radius, 2, 8);
+		int count = pack.getCount(radius);
+		if(count > 0) {
+			int index = rand.nextInt(count);
+			if(site != null && !fits(pack, radius, index, facing, site)) {
+				index = findFit(pack, radius, index, facing, site, rand);
+			}
+			JoCode[] codes = decoded[radius - 2];
+			JoCode code = codes[index];
+			if(code == null) {
+				code = pack.getCode(radius, index);
+				codes[index] = code;//Keep it since it may be carrying simulated templates
+			}
+			return code;
 		}
 		
 		return null;
 	}
+	
+	private boolean fits(JoCodePack pack, int radius, int index, EnumFacing facing, TreeSite site) {
+		JoCodeBounds[] radiusBounds = bounds[radius - 2];
+		JoCodeBounds codeBounds = radiusBounds[index];
+		if(codeBounds == null) {
+			codeBounds = pack.getBounds(radius, index);
+			radiusBounds[index] = codeBounds;
+		}
+		return site.fits(codeBounds, facing, radius);
+	}
+	
+	private int findFit(JoCodePack pack, int radius, int index, EnumFacing facing, TreeSite site, Random rand) {
+		int count = pack.getCount(radius);
+		int[] fitting = new int[count];
+		int numFitting = 0;
+		for(int i = 0; i < count; i++) {
+			if(fits(pack, radius, i, facing, site)) {
+				fitting[numFitting++] = i;
+			}
+		}
+		return numFitting > 0 ? fitting[rand.nextInt(numFitting)] : index;
+	}
 
 }
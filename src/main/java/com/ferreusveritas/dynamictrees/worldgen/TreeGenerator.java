@@ -1,9 +1,12 @@
 package com.ferreusveritas.dynamictrees.worldgen;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 import com.ferreusveritas.dynamictrees.ModConfigs;
-import com.ferreusveritas.dynamictrees.api.TreeHelper;
 import com.ferreusveritas.dynamictrees.api.WorldGenRegistry;
 import com.ferreusveritas.dynamictrees.api.worldgen.IBiomeDensityProvider.EnumChance;
 import com.ferreusveritas.dynamictrees.api.worldgen.IBiomeSpeciesSelector.Decision;
@@ -11,6 +14,8 @@ import com.ferreusveritas.dynamictrees.trees.Species;
 import com.ferreusveritas.dynamictrees.util.Circle;
 import com.ferreusveritas.dynamictrees.util.CompatHelper;
 import com.ferreusveritas.dynamictrees.util.CoordUtils;
+import com.ferreusveritas.dynamictrees.worldgen.WorldGenMetrics.Stage;
+import com.ferreusveritas.dynamictrees.worldgen.WorldGenRandom.Purpose;
 
 import net.minecraft.block.BlockColored;
 import net.minecraft.block.state.IBlockState;
@@ -34,7 +39,8 @@ public class TreeGenerator implements IWorldGenerator {
 	public BiomeRadiusCoordinator radiusCoordinator; //Finds radius for coordinates
 	public TreeCodeStore codeStore;
 	protected ChunkCircleManager circleMan;
-	protected RandomXOR random;
+	protected CirclePresolver circlePresolver;
+	protected final LongAdder populationNanos = new LongAdder();
 	
 	public static TreeGenerator getTreeGenerator() {
 		return INSTANCE;
@@ -82,29 +88,61 @@ public class TreeGenerator implements IWorldGenerator {
 	}
 	
 	public TreeGenerator() {
-		biomeTreeHandler = new BiomeTreeHandler();
+		this(new BiomeTreeHandler());
+	}
+	
+	/**
+	 * A generator with it's own circles and radius fields that shares the species selection and density rules of
+	 * another.  Used to generate trees into worlds other than the game's own.
+	 */
+	public TreeGenerator(BiomeTreeHandler biomeTreeHandler) {
+		this.biomeTreeHandler = biomeTreeHandler;
 		radiusCoordinator = new BiomeRadiusCoordinator(biomeTreeHandler);
 		circleMan = new ChunkCircleManager(radiusCoordinator);
-		random = new RandomXOR();
+		circlePresolver = new CirclePresolver(circleMan);
 	}
 	
 	public void onWorldUnload() {
+		circleMan.flush();
+		radiusCoordinator.clear();//The next world may have different biomes
 		circleMan = new ChunkCircleManager(radiusCoordinator);//Clears the cached circles
+		circlePresolver = new CirclePresolver(circleMan);
 	}
 	
 	public ChunkCircleManager getChunkCircleManager() {
 		return circleMan;
 	}
 	
+	public CirclePresolver getCirclePresolver() {
+		return circlePresolver;
+	}
+	
+	/**
+	 * @return The total time spent populating chunks with trees
+	 */
+	public long getPopulationNanos() {
+		return populationNanos.sum();
+	}
+	
+	/**
+	 * The stream that the circles of a chunk are solved with.  Population and pre-solving must agree on it so a
+	 * chunk gets the same circles no matter which one solves it first.
+	 */
+	public static Random circleRandom(World world, int chunkX, int chunkZ) {
+		return WorldGenRandom.forChunk(world.getSeed(), chunkX, chunkZ).split(0, Purpose.CIRCLES);
+	}
+	
 	@Override
 	public void generate(Random randomUnused, int chunkX, int chunkZ, World world, IChunkGenerator chunkGenerator, IChunkProvider chunkProvider) {
 		
-		//We use this custom random number generator because despite what everyone says the Java Random class is not thread safe.
-		random.setXOR(new BlockPos(chunkX, 0, chunkZ));
+		//Every random number is derived from the seed and the chunk so it doesn't matter which thread or in what order chunks are populated
+		WorldGenRandom random = WorldGenRandom.forChunk(world.getSeed(), chunkX, chunkZ);
 		
 		switch (world.provider.getDimension()) {
 		case 0: //Overworld
+			long start = System.nanoTime();
 			generateOverworld(random, chunkX, chunkZ, world, chunkGenerator, chunkProvider);
+			populationNanos.add(System.nanoTime() - start);
 			break;
 		case -1: //Nether
 			break;
@@ -113,17 +151,40 @@ public class TreeGenerator implements IWorldGenerator {
 		}
 	}
 	
-	private void generateOverworld(Random random, int chunkX, int chunkZ, World world, IChunkGenerator chunkGenerator, IChunkProvider chunkProvider) {
+	private void generateOverworld(WorldGenRandom random, int chunkX, int chunkZ, World world, IChunkGenerator chunkGenerator, IChunkProvider chunkProvider) {
 		if(world.getWorldType() != WorldType.FLAT) {
-			circleMan.getCircles(world, random, chunkX, chunkZ).forEach(c -> makeTree(world, c));
+			applyPendingVoxels(world, chunkX, chunkZ);
+			
+			WorldGenContext context = new WorldGenContext(world, chunkX, chunkZ);
+			
+			//Trees are picked in order on this thread, expanded off-world in parallel and then written to the world in order
+			ArrayList<PendingTree> trees = new ArrayList<PendingTree>();
+			ArrayList<Circle> circles = circleMan.getCircles(world, circleRandom(world, chunkX, chunkZ), chunkX, chunkZ);
+			for(int i = 0; i < circles.size(); i++) {
+				trees.add(pickTree(context, circles.get(i), random, i));
+			}
+			expandTrees(trees);
+			trees.forEach(t -> makeTree(context, t));
 		
 			BlockPos pos = new BlockPos(chunkX * 16, 0, chunkZ * 16);
-			if(CompatHelper.biomeHasType(world.getBiome(pos), Type.SPOOKY)) {
-				roofedForestCompensation(world, random, pos);
+			if(CompatHelper.biomeHasType(context.getBiome(pos), Type.SPOOKY)) {
+				roofedForestCompensation(world, random.split(0, Purpose.TERRAIN), pos);
 			}
 		}
 	}
 	
+	/**
+	 * Completes the trees of earlier chunks that reached into the chunks being populated.  Every one of the
+	 * 2x2 chunks is generated at this point.  This is done before any new trees are placed so they can grow
+	 * around the finished canopies.
+	 */
+	private void applyPendingVoxels(World world, int chunkX, int chunkZ) {
+		PendingVoxels pending = PendingVoxels.get(world);
+		for(int i = 0; i < 4; i++) {
+			pending.apply(world, chunkX + (i & 1), chunkZ + (i >> 1));
+		}
+	}
+	
 	/**
 	 * Decorate the roofedForest exactly like Minecraft, except leave out the trees and just make giant mushrooms
 	 * 
@@ -169,52 +230,114 @@ public class TreeGenerator implements IWorldGenerator {
 		}
 	}
 	
-	private EnumGeneratorResult makeTree(World world, Circle circle) {
+	/** A tree that has been picked for a circle but hasn't been written to the world yet */
+	private static class PendingTree {
+		final Circle circle;
+		final WorldGenRandom random;//The circle's own streams are split from this
+		BlockPos pos;
+		Biome biome;
+		Species species;
+		TreeBuffer buffer;
+		boolean template;//Pasted from the code's template so the buffer is never expanded
+		EnumGeneratorResult result = EnumGeneratorResult.GENERATED;
+		
+		PendingTree(Circle circle, WorldGenRandom random) {
+			this.circle = circle;
+			this.random = random;
+		}
+	}
+	
+	/**
+	 * Decides everything about the tree of a circle short of generating it.  This is all done on the generation
+	 * thread since it reads the world.
+	 * 
+	 * @param chunkRandom The root stream of the chunk
+	 * @param index The index of the circle within the chunk
+	 */
+	private PendingTree pickTree(WorldGenContext context, Circle circle, WorldGenRandom chunkRandom, int index) {
+		World world = context.world;
+		PendingTree tree = new PendingTree(circle, chunkRandom.split(index, Purpose.SHAPE));
+		Random selection = chunkRandom.split(index, Purpose.SELECTION);
 		
 		circle.add(8, 8);//Move the circle into the "stage"
 		
-		BlockPos pos = world.getHeight(new BlockPos(circle.x, 0, circle.z)).down();
-		while(world.isAirBlock(pos) || TreeHelper.isTreePart(world, pos)) {//Skip down past the bits of generated tree and air
-			pos = pos.down();
-		}
+		long start = WorldGenMetrics.start();
+		BlockPos pos = context.getGround(circle.x, circle.z);
+		WorldGenMetrics.record(Stage.GROUND_SEARCH, start);
 		
 		IBlockState blockState = world.getBlockState(pos);
 		
-		EnumGeneratorResult result = EnumGeneratorResult.GENERATED;
+		Biome biome = context.getBiome(pos);
+		tree.pos = pos;
+		tree.biome = biome;
 		
-		Biome biome = world.getBiome(pos);
-		Decision decision = biomeTreeHandler.getSpecies(world, biome, pos, blockState, random);
+		Decision decision = biomeTreeHandler.getSpecies(world, biome, pos, blockState, selection);
 		if(decision.isHandled()) {
 			Species species = decision.getSpecies();
+			tree.species = species;
 			if(species != null) {
 				if(species.isAcceptableSoilForWorldgen(world, pos, blockState)) {
-					if(biomeTreeHandler.chance(biome, species, circle.radius, random) == EnumChance.OK) {
-						if(species.generate(world, pos, biome, random, circle.radius)) {
-							result = EnumGeneratorResult.GENERATED;
-						} else {
-							result = EnumGeneratorResult.FAILGENERATION;
-						}
+					if(biomeTreeHandler.chance(biome, species, circle.radius, selection) == EnumChance.OK) {
+						TreeSite site = ModConfigs.worldGenFitCodes && !species.hasCustomGeneration() ? new TreeSite(world, pos, context.getSafeBounds(pos), species) : null;
+						tree.buffer = species.prepareGeneration(tree.random, circle.radius, site);
+						tree.template = tree.buffer != null && tree.buffer.templateFits(world, pos, context.getSafeBounds(pos));
 					} else {
-						result = EnumGeneratorResult.FAILCHANCE;
+						tree.result = EnumGeneratorResult.FAILCHANCE;
 					}
 				} else {
-					result = EnumGeneratorResult.FAILSOIL;
+					tree.result = EnumGeneratorResult.FAILSOIL;
 				}
 			} else {
-				result = EnumGeneratorResult.NOTREE;
+				tree.result = EnumGeneratorResult.NOTREE;
 			}
 		} else {
-			result = EnumGeneratorResult.UNHANDLEDBIOME;
+			tree.result = EnumGeneratorResult.UNHANDLEDBIOME;
 		}
 		
+		return tree;
+	}
+	
+	/**
+	 * Expands the picked trees into their off-world buffers on all of the cores.  Trees that will be pasted
+	 * from templates are skipped.  If an earlier tree of the chunk ends up in the way of a template the tree is
+	 * simulated against the world instead.
+	 */
+	private void expandTrees(List<PendingTree> trees) {
+		long start = WorldGenMetrics.start();
+		
+		Stream<PendingTree> stream = ModConfigs.worldGenParallelExpansion && trees.size() > 1 ? trees.parallelStream() : trees.stream();
+		stream.filter(t -> t.buffer != null && !t.template).forEach(t -> t.buffer.expand());
+		
+		WorldGenMetrics.record(Stage.EXPANSION, start);
+	}
+	
+	private EnumGeneratorResult makeTree(WorldGenContext context, PendingTree tree) {
+		World world = context.world;
+		Circle circle = tree.circle;
+		BlockPos pos = tree.pos;
+		
+		long placementTime = 0;
+		if(tree.result == EnumGeneratorResult.GENERATED) {
+			long start = WorldGenMetrics.start();
+			boolean generated = tree.buffer != null ?
+				tree.species.generate(world, pos, tree.biome, context.getSafeBounds(pos), tree.buffer, tree.random) :
+				tree.species.generate(world, pos, tree.biome, tree.random, circle.radius);//Species with their own worldgen override this
+			placementTime = WorldGenMetrics.record(Stage.PLACEMENT, start);
+			if(!generated) {
+				tree.result = EnumGeneratorResult.FAILGENERATION;
+			}
+		}
+		
+		WorldGenMetrics.recordTree(tree.result, tree.species, tree.biome, placementTime);
+		
 		//Display wool circles for testing the circle growing algorithm
 		if(ModConfigs.worldGenDebug) {
-			makeWoolCircle(world, circle, pos.getY(), result);
+			makeWoolCircle(world, circle, pos.getY(), tree.result);
 		}
 		
 		circle.add(-8, -8);//Move the circle back to normal coords
 		
-		return result;
+		return tree.result;
 	}
 	
 }
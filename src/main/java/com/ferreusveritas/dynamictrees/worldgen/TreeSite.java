@@ -0,0 +1,88 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import com.ferreusveritas.dynamictrees.ModConfigs;
+import com.ferreusveritas.dynamictrees.trees.Species;
+import com.ferreusveritas.dynamictrees.util.SafeChunkBounds;
+import com.ferreusveritas.dynamictrees.util.SimpleVoxmap;
+
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * The space that's available for a worldgen tree at the spot it's rooted.  Used to pick a {@link JoCode} that
+ * fits instead of one that runs into an overhang or gets it's canopy clipped off at the edge of the generated
+ * chunks.
+ *
+ * @author ferreusveritas
+ */
+public class TreeSite {
+
+	private static final int maxHeight = 32;//The height of the leaf map a tree is built in
+
+	private final int clearance;
+	private final int north;
+	private final int south;
+	private final int west;
+	private final int east;
+	private final int leafSpread;
+	private final int leafTop;
+	private final boolean canopy;
+
+	/**
+	 * @param world The world
+	 * @param rootPos The position of what will become the rooty dirt block
+	 * @param safeBounds The area that is safe to place blocks in
+	 * @param species The species that will grow at the site
+	 */
+	public TreeSite(World world, BlockPos rootPos, SafeChunkBounds safeBounds, Species species) {
+		BlockPos treePos = rootPos.up();
+
+		int height = 0;
+		int limit = Math.min(maxHeight, world.getHeight() - treePos.getY());
+		while(height < limit) {
+			BlockPos pos = treePos.up(height);
+			if(!world.getBlockState(pos).getBlock().isReplaceable(world, pos)) {
+				break;
+			}
+			height++;
+		}
+		clearance = height;
+
+		north = safeBounds.getReach(treePos, EnumFacing.NORTH, 16);
+		south = safeBounds.getReach(treePos, EnumFacing.SOUTH, 16);
+		west = safeBounds.getReach(treePos, EnumFacing.WEST, 16);
+		east = safeBounds.getReach(treePos, EnumFacing.EAST, 16);
+
+		SimpleVoxmap leafCluster = species.getTree().getCellKit().getLeafCluster();
+		leafSpread = (leafCluster.getLenX() - 1) / 2;
+		leafTop = leafCluster.getLenY() - 1 - leafCluster.getCenter().getY();
+
+		//Leaves that reach into ungenerated chunks are deferred so only the branches have to stay in bounds
+		canopy = !ModConfigs.worldGenDeferredLeaves;
+	}
+
+	public int getClearance() {
+		return clearance;
+	}
+
+	/**
+	 * @param bounds The bounds of a code facing north
+	 * @param facing The direction the code will face
+	 * @param radius The radius of the tree generation boundary.  Leaves never spread past it.
+	 * @return true if the tree will have room to grow here
+	 */
+	public boolean fits(JoCodeBounds bounds, EnumFacing facing, int radius) {
+		if(bounds.height + leafTop > clearance) {
+			return false;
+		}
+
+		JoCodeBounds b = bounds.rotate(facing);
+		int spread = canopy ? leafSpread : 0;
+		return Math.min(-b.minZ + spread, radius) <= north
+			&& Math.min(b.maxZ + spread, radius) <= south
+			&& Math.min(-b.minX + spread, radius) <= west
+			&& Math.min(b.maxX + spread, radius) <= east;
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ferreusveritas.dynamictrees.blocks.BlockBranch;
+import com.ferreusveritas.dynamictrees.blocks.BlockDynamicLeaves;
+import com.ferreusveritas.dynamictrees.trees.DynamicTree;
+import com.ferreusveritas.dynamictrees.trees.Species;
+import com.ferreusveritas.dynamictrees.util.SafeChunkBounds;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * A finished worldgen tree that can be pasted into the world like a structure.  Branch radii, settled leaf
+ * hydration and rot are all baked in so none of the inflation, aging or rot has to be simulated again.
+ *
+ * Templates are captured from a {@link JoCode} that was simulated in a {@link VoxelWorld} with nothing around it
+ * to interfere.  A template is only pasted where every one of it's blocks can be placed.  Anywhere else the tree
+ * collides with terrain and has to be simulated.
+ *
+ * @author ferreusveritas
+ */
+public class TreeTemplate {
+
+	/** The volume is 1 block wider than the leaf map since aging can grow leaves just outside of it */
+	private static final int HEIGHT = 33;
+
+	private final Species species;
+	private final int radius;
+	private final int[] positions;//Packed positions relative to the rooty dirt.  Branches come first.
+	private final byte[] stateIndices;
+	private final IBlockState[] palette;
+	private final int[] ends;
+
+	private TreeTemplate(Species species, int radius, int[] positions, byte[] stateIndices, IBlockState[] palette, int[] ends) {
+		this.species = species;
+		this.radius = radius;
+		this.positions = positions;
+		this.stateIndices = stateIndices;
+		this.palette = palette;
+		this.ends = ends;
+	}
+
+	private static int pack(int dx, int dy, int dz) {
+		return (dy & 0xFF) << 16 | (dz & 0xFF) << 8 | (dx & 0xFF);
+	}
+
+	private static BlockPos unpack(BlockPos rootPos, int packed) {
+		return rootPos.add((byte) packed, (byte) (packed >> 16), (byte) (packed >> 8));
+	}
+
+	public boolean matches(Species species, int radius) {
+		return this.species == species && this.radius == radius;
+	}
+
+	/**
+	 * @return A template that is never placed for a code that doesn't grow into a tree
+	 */
+	public static TreeTemplate empty(Species species, int radius) {
+		return new TreeTemplate(species, radius, new int[0], new byte[0], new IBlockState[0], new int[0]);
+	}
+
+	/**
+	 * Captures the tree that was just generated.  Should be called before anything like fruit or vines
+	 * is added to the tree.
+	 *
+	 * @param world The world
+	 * @param species The species of the tree
+	 * @param rootPos The position of the rooty dirt block
+	 * @param radius The constraint radius of the tree
+	 * @param endPoints The end points that survived rot
+	 * @return The template or null if the tree didn't survive it's generation
+	 */
+	public static TreeTemplate capture(World world, Species species, BlockPos rootPos, int radius, List<BlockPos> endPoints) {
+		DynamicTree tree = species.getTree();
+		BlockBranch branch = tree.getDynamicBranch();
+		IBlockState leavesState = tree.getDynamicLeavesState();
+		int reach = radius + 1;
+
+		ArrayList<Integer> branchPositions = new ArrayList<Integer>();
+		ArrayList<Integer> leavesPositions = new ArrayList<Integer>();
+		ArrayList<IBlockState> branchStates = new ArrayList<IBlockState>();
+		ArrayList<IBlockState> leavesStates = new ArrayList<IBlockState>();
+
+		for(BlockPos.MutableBlockPos pos : BlockPos.getAllInBoxMutable(rootPos.add(-reach, 1, -reach), rootPos.add(reach, HEIGHT, reach))) {
+			IBlockState state = world.getBlockState(pos);
+			int packed = pack(pos.getX() - rootPos.getX(), pos.getY() - rootPos.getY(), pos.getZ() - rootPos.getZ());
+			if(state.getBlock() == branch) {
+				branchPositions.add(packed);
+				branchStates.add(state);
+			} else
+			if(state.getBlock() == leavesState.getBlock() && state.getValue(BlockDynamicLeaves.TREE).equals(leavesState.getValue(BlockDynamicLeaves.TREE))) {
+				leavesPositions.add(packed);
+				leavesStates.add(state);
+			}
+		}
+
+		if(branchPositions.isEmpty()) {
+			return null;
+		}
+
+		branchPositions.addAll(leavesPositions);
+		branchStates.addAll(leavesStates);
+
+		ArrayList<IBlockState> palette = new ArrayList<IBlockState>();
+		int[] positions = new int[branchPositions.size()];
+		byte[] stateIndices = new byte[positions.length];
+		for(int i = 0; i < positions.length; i++) {
+			IBlockState state = branchStates.get(i);
+			int index = palette.indexOf(state);
+			if(index == -1) {
+				index = palette.size();
+				palette.add(state);
+			}
+			positions[i] = branchPositions.get(i);
+			stateIndices[i] = (byte) index;
+		}
+
+		int[] ends = new int[endPoints.size()];
+		for(int i = 0; i < ends.length; i++) {
+			BlockPos end = endPoints.get(i);
+			ends[i] = pack(end.getX() - rootPos.getX(), end.getY() - rootPos.getY(), end.getZ() - rootPos.getZ());
+		}
+
+		return new TreeTemplate(species, radius, positions, stateIndices, palette.toArray(new IBlockState[palette.size()]), ends);
+	}
+
+	/**
+	 * @param world The world
+	 * @param rootPos The position of what will become the rooty dirt block
+	 * @param safeBounds The area that is safe to place blocks in
+	 * @return true if every one of the tree's blocks can be placed
+	 */
+	public boolean fits(World world, BlockPos rootPos, SafeChunkBounds safeBounds) {
+		if(positions.length == 0) {
+			return false;
+		}
+
+		for(int packed : positions) {
+			BlockPos pos = unpack(rootPos, packed);
+			if(!safeBounds.inBounds(pos) || !world.getBlockState(pos).getBlock().isReplaceable(world, pos)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Pastes the tree into the world if every one of it's blocks can be placed.  Nothing is changed otherwise.
+	 *
+	 * @param world The world
+	 * @param rootPos The position of what will become the rooty dirt block
+	 * @param safeBounds The area that is safe to place blocks in
+	 * @return true if the tree was placed
+	 */
+	public boolean place(World world, BlockPos rootPos, SafeChunkBounds safeBounds) {
+		if(!fits(world, rootPos, safeBounds)) {
+			return false;
+		}
+
+		species.placeRootyDirtBlock(world, rootPos, 0);//Set to unfertilized rooty dirt
+
+		ChunkSectionWriter writer = new ChunkSectionWriter(world);
+		for(int i = 0; i < positions.length; i++) {
+			writer.setBlockState(unpack(rootPos, positions[i]), palette[stateIndices[i]]);
+		}
+		writer.flush();
+
+		return true;
+	}
+
+	/**
+	 * @return The end points of the tree that survived rot for decorating the tree after it's placed
+	 */
+	public List<BlockPos> getEnds(BlockPos rootPos) {
+		ArrayList<BlockPos> endPoints = new ArrayList<BlockPos>(ends.length);
+		for(int packed : ends) {
+			endPoints.add(unpack(rootPos, packed));
+		}
+		return endPoints;
+	}
+
+}
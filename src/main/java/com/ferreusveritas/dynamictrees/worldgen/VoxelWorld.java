@@ -0,0 +1,243 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import com.ferreusveritas.dynamictrees.api.IAgeable;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.init.Blocks;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.GameType;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProviderSurface;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.storage.WorldInfo;
+
+/**
+ * A world that only exists in memory and only holds a single tree.  Blocks are kept in a map and everything
+ * below the ground level is dirt.  The tree is fenced into a cylinder of the given radius by barriers so it
+ * grows just like a tree does in it's worldgen circle.
+ *
+ * There are no chunks, entities, neighbor updates or lighting engine.  Sky light is estimated from the blocks
+ * above each position which is all that the leaves need to decide where they grow.  This is enough for the
+ * growth, aging and rot code of the trees to run unmodified.
+ *
+ * A voxel world must only be used by one thread.
+ *
+ * @author ferreusveritas
+ */
+public class VoxelWorld extends World {
+
+	public static final int GROUND = 64;//The y coordinate of the top of the dirt
+
+	private final HashMap<BlockPos, IBlockState> blocks = new HashMap<BlockPos, IBlockState>();
+	private final HashMap<BlockPos, TileEntity> tileEntities = new HashMap<BlockPos, TileEntity>();
+	private final LinkedHashSet<BlockPos> ageables = new LinkedHashSet<BlockPos>();
+	private final Biome biome;
+	private final int radius;
+	private int top = GROUND;//The highest y coordinate that has ever had a block in it
+
+	/**
+	 * @param biome The biome the whole world is made of
+	 * @param radius The radius of the cylinder around the origin that the tree can grow in
+	 */
+	public VoxelWorld(Biome biome, int radius) {
+		super(null, new WorldInfo(new WorldSettings(0, GameType.SURVIVAL, false, false, WorldType.DEFAULT), "dynamictrees_voxel"), new WorldProviderSurface(), new Profiler(), false);
+		this.biome = biome;
+		this.radius = radius;
+	}
+
+	private boolean isFenced(BlockPos pos) {
+		int x = pos.getX();
+		int z = pos.getZ();
+		return x * x + z * z > radius * radius + radius;//Same rounding as the worldgen circles
+	}
+
+	@Override
+	public IBlockState getBlockState(BlockPos pos) {
+		if(pos.getY() <= GROUND) {
+			IBlockState state = blocks.get(pos);
+			return state != null ? state : Blocks.DIRT.getDefaultState();
+		}
+		if(pos.getY() >= 256 || isFenced(pos)) {
+			return Blocks.BARRIER.getDefaultState();
+		}
+		IBlockState state = blocks.get(pos);
+		return state != null ? state : Blocks.AIR.getDefaultState();
+	}
+
+	@Override
+	public boolean setBlockState(BlockPos pos, IBlockState newState, int flags) {
+		if(pos.getY() < 0 || pos.getY() >= 256 || (pos.getY() > GROUND && isFenced(pos))) {
+			return false;
+		}
+
+		pos = pos.toImmutable();
+		Block block = newState.getBlock();
+
+		if(block == Blocks.AIR) {
+			blocks.remove(pos);
+		} else {
+			blocks.put(pos, newState);
+			top = Math.max(top, pos.getY());
+		}
+
+		if(block instanceof IAgeable) {
+			ageables.add(pos);
+		} else {
+			ageables.remove(pos);
+		}
+
+		tileEntities.remove(pos);
+		if(block.hasTileEntity(newState)) {
+			TileEntity tileEntity = block.createTileEntity(this, newState);
+			if(tileEntity != null) {
+				tileEntity.setWorld(this);
+				tileEntity.setPos(pos);
+				tileEntities.put(pos, tileEntity);
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean destroyBlock(BlockPos pos, boolean dropBlock) {
+		return setBlockState(pos, Blocks.AIR.getDefaultState(), 3);//Nothing is ever dropped
+	}
+
+	@Override
+	public TileEntity getTileEntity(BlockPos pos) {
+		return tileEntities.get(pos);
+	}
+
+	@Override
+	public void setTileEntity(BlockPos pos, TileEntity tileEntity) {
+		if(tileEntity != null) {
+			tileEntity.setWorld(this);
+			tileEntity.setPos(pos.toImmutable());
+			tileEntities.put(pos.toImmutable(), tileEntity);
+		} else {
+			tileEntities.remove(pos);
+		}
+	}
+
+	@Override
+	public void removeTileEntity(BlockPos pos) {
+		tileEntities.remove(pos);
+	}
+
+	@Override
+	public Biome getBiome(BlockPos pos) {
+		return biome;
+	}
+
+	/**
+	 * Light passes straight down through a column losing the opacity of each block on the way.  A position gets
+	 * the brightest of it's own column and it's horizontal neighbors' columns less one.
+	 */
+	@Override
+	public int getLightFor(EnumSkyBlock type, BlockPos pos) {
+		if(type == EnumSkyBlock.BLOCK) {
+			return 0;
+		}
+
+		int light = getColumnLight(pos);
+		for(EnumFacing dir : EnumFacing.HORIZONTALS) {
+			if(light >= 14) {
+				break;
+			}
+			light = Math.max(light, getColumnLight(pos.offset(dir)) - 1);
+		}
+		return light;
+	}
+
+	private int getColumnLight(BlockPos pos) {
+		int light = 15;
+		for(int y = pos.getY() + 1; y <= top && light > 0; y++) {
+			BlockPos above = new BlockPos(pos.getX(), y, pos.getZ());
+			IBlockState state = blocks.get(above);
+			if(state != null) {
+				light -= Math.max(state.getLightOpacity(this, above), 0);
+			}
+		}
+		return Math.max(light, 0);
+	}
+
+	@Override
+	public int getLight(BlockPos pos) {
+		return getLightFor(EnumSkyBlock.SKY, pos);
+	}
+
+	@Override
+	public int getLightFromNeighbors(BlockPos pos) {
+		return getLightFor(EnumSkyBlock.SKY, pos);
+	}
+
+	@Override
+	public boolean canSeeSky(BlockPos pos) {
+		return getColumnLight(pos) == 15;
+	}
+
+	@Override
+	public boolean isChunkGeneratedAt(int x, int z) {
+		return true;
+	}
+
+	@Override
+	protected boolean isChunkLoaded(int x, int z, boolean allowEmpty) {
+		return true;
+	}
+
+	@Override
+	protected IChunkProvider createChunkProvider() {
+		return null;//There are no chunks
+	}
+
+	@Override
+	public boolean spawnEntity(Entity entity) {
+		return false;
+	}
+
+	@Override
+	public void notifyNeighborsOfStateChange(BlockPos pos, Block blockType, boolean updateObservers) {}
+
+	@Override
+	public void notifyNeighborsOfStateExcept(BlockPos pos, Block blockType, EnumFacing skipSide) {}
+
+	@Override
+	public void neighborChanged(BlockPos pos, Block blockIn, BlockPos fromPos) {}
+
+	/**
+	 * @return A snapshot of the positions of all of the blocks that can be aged
+	 */
+	public List<BlockPos> getAgeables() {
+		return new ArrayList<BlockPos>(ageables);
+	}
+
+	/**
+	 * @return The number of blocks above the ground
+	 */
+	public int getBlockCount() {
+		int count = 0;
+		for(BlockPos pos : blocks.keySet()) {
+			if(pos.getY() > GROUND) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+
+import com.ferreusveritas.dynamictrees.systems.LeavesSpeciesCache;
+import com.ferreusveritas.dynamictrees.trees.Species;
+import com.ferreusveritas.dynamictrees.worldgen.SyntheticWorld.Terrain;
+
+import net.minecraft.world.biome.Biome;
+
+/**
+ * Measures the throughput of tree worldgen.  A square of chunks is populated with trees in a {@link SyntheticWorld}
+ * by a {@link TreeGenerator} of it's own so the circles and radius fields start out cold exactly like they do in
+ * a new world.  The same seed, terrain and biome always populate the same trees so runs before and after a change
+ * can be compared.
+ *
+ * Terrain generation is done before the timer starts.  Only the population of the chunks is measured.  The
+ * worldgen metrics are put back the way they were once the results are in so the benchmark doesn't disturb the
+ * metrics of a running server.
+ *
+ * @author ferreusveritas
+ */
+public class WorldGenBenchmark {
+
+	public static final long DEFAULT_SEED = 8675309;
+
+	private final int width;
+	private final Terrain terrain;
+	private final Biome biome;
+	private final long seed;
+	private final boolean coldCaches;
+
+	/**
+	 * @param width The width of the square of chunks to populate
+	 * @param terrain The shape of the ground
+	 * @param biome The biome of the whole world
+	 * @param seed The world seed
+	 * @param coldCaches Drops the decoded codes and templates of every species before the run so they start out
+	 * cold too.  Only for servers that were started just to run the benchmark since the server's own worldgen
+	 * would have to rebuild them afterwards.
+	 */
+	public WorldGenBenchmark(int width, Terrain terrain, Biome biome, long seed, boolean coldCaches) {
+		this.width = width;
+		this.terrain = terrain;
+		this.biome = biome;
+		this.seed = seed;
+		this.coldCaches = coldCaches;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Runs the benchmark on the calling thread.  Trees are still expanded on all of the cores.
+	 *
+	 * @param directory A scratch directory for the world's data.  Anything already in it is deleted.
+	 * @return Human readable lines of results
+	 */
+	public List<String> run(File directory) throws IOException {
+		FileUtils.deleteDirectory(directory);//Circles left over from an earlier run would be read instead of solved
+		directory.mkdirs();
+
+		SyntheticWorld world = new SyntheticWorld(directory, seed, terrain, biome);
+		TreeGenerator generator = new TreeGenerator(TreeGenerator.getTreeGenerator().biomeTreeHandler);
+
+		//Population of a chunk reaches into the chunks to the south and east of it so those need terrain too
+		for(int cz = -1; cz <= width; cz++) {
+			for(int cx = -1; cx <= width; cx++) {
+				world.generateChunk(cx, cz);
+			}
+		}
+
+		//Codes decoded and templates simulated by earlier runs or worlds would otherwise make this run faster
+		if(coldCaches) {
+			for(Species species : Species.REGISTRY) {
+				if(species.getJoCodeStore() != null) {
+					species.getJoCodeStore().clearCaches();
+				}
+			}
+		}
+
+		boolean wasEnabled = WorldGenMetrics.isEnabled();
+		WorldGenMetrics.Snapshot metrics = WorldGenMetrics.snapshot();
+		WorldGenMetrics.reset();
+		WorldGenMetrics.setEnabled(true);
+
+		long allocatedStart = getAllocatedBytes();
+		long start = System.nanoTime();
+		long nanos;
+		long allocated;
+		List<String> metricLines;
+
+		try {
+			for(int cz = 0; cz < width; cz++) {
+				for(int cx = 0; cx < width; cx++) {
+					generator.generate(new Random(), cx, cz, world, null, null);
+				}
+			}
+			nanos = System.nanoTime() - start;
+			allocated = getAllocatedBytes() - allocatedStart;
+			metricLines = WorldGenMetrics.report(4);
+		} finally {
+			WorldGenMetrics.restore(metrics);
+			WorldGenMetrics.setEnabled(wasEnabled);
+		}
+
+		generator.onWorldUnload();
+		LeavesSpeciesCache.unloadWorld(world);
+		PendingVoxels.unloadWorld(world);
+
+		int chunks = width * width;
+		double seconds = nanos / 1000000000.0;
+
+		List<String> lines = new ArrayList<String>();
+		lines.add(String.format("Populated %d chunks of %s %s terrain(seed %d) in %.2fs", chunks, biome.getRegistryName(), terrain.name().toLowerCase(), seed, seconds));
+		lines.add(String.format(" throughput: %.1f chunks/s", chunks / seconds));
+		if(allocatedStart >= 0 && allocated >= 0) {
+			lines.add(String.format(" allocation: %.1fMB/s, %d bytes/chunk", allocated / seconds / (1024 * 1024), allocated / chunks));
+		} else {
+			lines.add(" allocation: n/a");
+		}
+		lines.addAll(metricLines);
+
+		return lines;
+	}
+
+	/**
+	 * @return The bytes allocated by every live thread so far or -1 if the JVM can't tell us
+	 */
+	private static long getAllocatedBytes() {
+		if(!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			return -1;
+		}
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if(!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+			return -1;
+		}
+
+		long total = 0;
+		for(long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			if(bytes > 0) {
+				total += bytes;
+			}
+		}
+		return total;
+	}
+
+}
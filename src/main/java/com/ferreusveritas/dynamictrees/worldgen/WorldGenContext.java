@@ -0,0 +1,125 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import com.ferreusveritas.dynamictrees.api.TreeHelper;
+import com.ferreusveritas.dynamictrees.util.SafeChunkBounds;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.Chunk;
+
+/**
+ * The world data shared by everything generated while populating a chunk.  Population works on the area that
+ * is offset 8 blocks into the chunk so everything placed lands in the 2x2 chunks starting at the populated
+ * chunk.  Those chunks are always loaded during population so their heightmaps and biome arrays are read
+ * directly and each lookup is only done once.  Positions outside of the area fall back to the world.
+ * 
+ * A context is only valid during the population of the chunk it was made for.
+ * 
+ * @author ferreusveritas
+ */
+public class WorldGenContext {
+	
+	public final World world;
+	public final int chunkX;
+	public final int chunkZ;
+	private final int originX;
+	private final int originZ;
+	private final Chunk[] chunks = new Chunk[4];
+	private final Biome[] biomes = new Biome[32 * 32];
+	private final int[] grounds = new int[32 * 32];//Zero means not found yet
+	private final SafeChunkBounds[] safeBounds = new SafeChunkBounds[4];
+	
+	public WorldGenContext(World world, int chunkX, int chunkZ) {
+		this.world = world;
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		originX = chunkX << 4;
+		originZ = chunkZ << 4;
+		
+		for(int i = 0; i < 4; i++) {
+			chunks[i] = world.getChunkFromChunkCoords(chunkX + (i & 1), chunkZ + (i >> 1));
+		}
+	}
+	
+	/**
+	 * @return The column index within the 2x2 chunk area or -1 if the column is outside of it
+	 */
+	private int columnIndex(int x, int z) {
+		int dx = x - originX;
+		int dz = z - originZ;
+		return ((dx | dz) & ~31) == 0 ? dz << 5 | dx : -1;
+	}
+	
+	private Chunk getChunk(int column) {
+		return chunks[(column >> 8 & 2) | (column >> 4 & 1)];
+	}
+	
+	/**
+	 * @return The y coordinate of the block above the highest block that blocks light in the column
+	 */
+	public int getHeight(int x, int z) {
+		int column = columnIndex(x, z);
+		if(column >= 0) {
+			return getChunk(column).getHeightValue(x & 15, z & 15);
+		}
+		return world.getHeight(new BlockPos(x, 0, z)).getY();
+	}
+	
+	public Biome getBiome(BlockPos pos) {
+		int column = columnIndex(pos.getX(), pos.getZ());
+		if(column < 0) {
+			return world.getBiome(pos);
+		}
+		
+		Biome biome = biomes[column];
+		if(biome == null) {
+			biome = getChunk(column).getBiome(pos, world.getBiomeProvider());
+			biomes[column] = biome;
+		}
+		return biome;
+	}
+	
+	/**
+	 * Finds the ground block a tree can be planted on by skipping down past air and the bits of trees that
+	 * have already been generated.
+	 * 
+	 * @return The position of the ground block
+	 */
+	public BlockPos getGround(int x, int z) {
+		int column = columnIndex(x, z);
+		if(column >= 0 && grounds[column] != 0) {
+			return new BlockPos(x, grounds[column], z);
+		}
+		
+		BlockPos pos = new BlockPos(x, getHeight(x, z) - 1, z);
+		while(world.isAirBlock(pos) || TreeHelper.isTreePart(world, pos)) {//Skip down past the bits of generated tree and air
+			pos = pos.down();
+		}
+		
+		if(column >= 0) {
+			grounds[column] = pos.getY();
+		}
+		return pos;
+	}
+	
+	/**
+	 * The bounds are shared between all of the trees rooted in the same chunk.  They must not be modified.
+	 * 
+	 * @param rootPos The position of the rooty dirt block of a tree
+	 * @return The area that is safe to place blocks in for a tree
+	 */
+	public SafeChunkBounds getSafeBounds(BlockPos rootPos) {
+		int column = columnIndex(rootPos.getX(), rootPos.getZ());
+		if(column < 0) {
+			return new SafeChunkBounds(world, rootPos);
+		}
+		
+		int index = (column >> 8 & 2) | (column >> 4 & 1);
+		if(safeBounds[index] == null) {
+			safeBounds[index] = new SafeChunkBounds(world, rootPos);
+		}
+		return safeBounds[index];
+	}
+	
+}
@@ -0,0 +1,293 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.ferreusveritas.dynamictrees.ModConfigs;
+import com.ferreusveritas.dynamictrees.trees.Species;
+import com.ferreusveritas.dynamictrees.worldgen.TreeGenerator.EnumGeneratorResult;
+
+import net.minecraft.world.biome.Biome;
+
+/**
+ * Counts the outcomes of tree generation and the time spent in each stage of it.  Outcomes and placement time
+ * are split by species and by biome so that the biomes where worldgen time is being wasted stand out.
+ *
+ * Timing is only done while metrics are enabled.  Timings of the radius field are nested within the circle
+ * solve.  Expansion is timed once per chunk for all of it's trees since they are expanded in parallel.
+ *
+ * @author ferreusveritas
+ */
+public class WorldGenMetrics {
+
+	public enum Stage {
+		CIRCLE_SOLVE("circle solve"),
+		RADIUS_FIELD("radius field"),
+		GROUND_SEARCH("ground search"),
+		EXPANSION("off-world expansion"),
+		PLACEMENT("placement");
+
+		public final String label;
+
+		private Stage(String label) {
+			this.label = label;
+		}
+	}
+
+	/** A count of each outcome and the time spent placing trees */
+	public static class Tally {
+		final LongAdder[] results = new LongAdder[EnumGeneratorResult.values().length];
+		final LongAdder nanos = new LongAdder();
+
+		Tally() {
+			for(int i = 0; i < results.length; i++) {
+				results[i] = new LongAdder();
+			}
+		}
+
+		public long getCount() {
+			long count = 0;
+			for(LongAdder result : results) {
+				count += result.sum();
+			}
+			return count;
+		}
+
+		public long getCount(EnumGeneratorResult result) {
+			return results[result.ordinal()].sum();
+		}
+
+		public long getNanos() {
+			return nanos.sum();
+		}
+
+		Tally copy() {
+			Tally copy = new Tally();
+			addTo(copy);
+			return copy;
+		}
+
+		void addTo(Tally tally) {
+			for(int i = 0; i < results.length; i++) {
+				tally.results[i].add(results[i].sum());
+			}
+			tally.nanos.add(nanos.sum());
+		}
+	}
+
+	/** A copy of every metric so they can be put back after something else has used them */
+	public static class Snapshot {
+		private final long[] stageCalls = new long[Stage.values().length];
+		private final long[] stageNanos = new long[Stage.values().length];
+		private final Tally total;
+		private final HashMap<String, Tally> species = new HashMap<String, Tally>();
+		private final HashMap<String, Tally> biomes = new HashMap<String, Tally>();
+		private final int failedSolves;
+
+		private Snapshot() {
+			for(int i = 0; i < stageCalls.length; i++) {
+				this.stageCalls[i] = WorldGenMetrics.stageCalls[i].sum();
+				this.stageNanos[i] = WorldGenMetrics.stageNanos[i].sum();
+			}
+			this.total = WorldGenMetrics.total.copy();
+			WorldGenMetrics.species.forEach((k, v) -> this.species.put(k, v.copy()));
+			WorldGenMetrics.biomes.forEach((k, v) -> this.biomes.put(k, v.copy()));
+			this.failedSolves = CircleSolver.failedSolves.get();
+		}
+	}
+
+	private static volatile boolean enabled = ModConfigs.worldGenMetrics;
+	private static final LongAdder[] stageCalls = new LongAdder[Stage.values().length];
+	private static final LongAdder[] stageNanos = new LongAdder[Stage.values().length];
+	private static final Tally total = new Tally();
+	private static final ConcurrentHashMap<String, Tally> species = new ConcurrentHashMap<String, Tally>();
+	private static final ConcurrentHashMap<String, Tally> biomes = new ConcurrentHashMap<String, Tally>();
+
+	static {
+		for(int i = 0; i < stageCalls.length; i++) {
+			stageCalls[i] = new LongAdder();
+			stageNanos[i] = new LongAdder();
+		}
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	/**
+	 * @return A start time to pass to {@link #record} or zero if metrics are disabled
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * @param stage The stage that was timed
+	 * @param start The start time from {@link #start}
+	 * @return The time elapsed in nanoseconds
+	 */
+	public static long record(Stage stage, long start) {
+		if(start == 0) {
+			return 0;
+		}
+		long elapsed = System.nanoTime() - start;
+		stageCalls[stage.ordinal()].increment();
+		stageNanos[stage.ordinal()].add(elapsed);
+		return elapsed;
+	}
+
+	/**
+	 * Records the outcome of a single tree
+	 *
+	 * @param result The outcome
+	 * @param tree The species that was selected or null if there wasn't one
+	 * @param biome The biome of the tree
+	 * @param placementNanos The time spent placing the tree
+	 */
+	public static void recordTree(EnumGeneratorResult result, Species tree, Biome biome, long placementNanos) {
+		if(!enabled) {
+			return;
+		}
+		tally(total, result, placementNanos);
+		tally(species.computeIfAbsent(tree != null ? String.valueOf(tree.getRegistryName()) : "none", k -> new Tally()), result, placementNanos);
+		tally(biomes.computeIfAbsent(String.valueOf(biome.getRegistryName()), k -> new Tally()), result, placementNanos);
+	}
+
+	private static void tally(Tally tally, EnumGeneratorResult result, long nanos) {
+		tally.results[result.ordinal()].increment();
+		tally.nanos.add(nanos);
+	}
+
+	public static void reset() {
+		for(int i = 0; i < stageCalls.length; i++) {
+			stageCalls[i].reset();
+			stageNanos[i].reset();
+		}
+		for(LongAdder result : total.results) {
+			result.reset();
+		}
+		total.nanos.reset();
+		species.clear();
+		biomes.clear();
+		CircleSolver.failedSolves.set(0);
+	}
+
+	/**
+	 * @return A copy of every metric as it is now
+	 */
+	public static Snapshot snapshot() {
+		return new Snapshot();
+	}
+
+	/**
+	 * Puts every metric back the way it was when the snapshot was taken.  Anything recorded since is lost.
+	 */
+	public static void restore(Snapshot snapshot) {
+		reset();
+		for(int i = 0; i < stageCalls.length; i++) {
+			stageCalls[i].add(snapshot.stageCalls[i]);
+			stageNanos[i].add(snapshot.stageNanos[i]);
+		}
+		snapshot.total.addTo(total);
+		snapshot.species.forEach((k, v) -> species.put(k, v.copy()));
+		snapshot.biomes.forEach((k, v) -> biomes.put(k, v.copy()));
+		CircleSolver.failedSolves.set(snapshot.failedSolves);
+	}
+
+	private static String millis(long nanos) {
+		return String.format("%.1fms", nanos / 1000000.0);
+	}
+
+	private static String outcomes(Tally tally) {
+		StringBuilder builder = new StringBuilder();
+		for(EnumGeneratorResult result : EnumGeneratorResult.values()) {
+			long count = tally.getCount(result);
+			if(count > 0) {
+				builder.append(builder.length() > 0 ? ", " : "").append(result.name().toLowerCase()).append(' ').append(count);
+			}
+		}
+		return builder.toString();
+	}
+
+	private static List<Map.Entry<String, Tally>> byTime(Map<String, Tally> tallies) {
+		List<Map.Entry<String, Tally>> entries = new ArrayList<Map.Entry<String, Tally>>(tallies.entrySet());
+		entries.sort((a, b) -> Long.compare(b.getValue().getNanos(), a.getValue().getNanos()));
+		return entries;
+	}
+
+	/**
+	 * @param limit The most species and biomes to list
+	 * @return Human readable lines for displaying in chat
+	 */
+	public static List<String> report(int limit) {
+		List<String> lines = new ArrayList<String>();
+
+		lines.add("Worldgen metrics " + (enabled ? "(enabled)" : "(disabled)"));
+		for(Stage stage : Stage.values()) {
+			long calls = stageCalls[stage.ordinal()].sum();
+			long nanos = stageNanos[stage.ordinal()].sum();
+			lines.add(" " + stage.label + ": " + calls + " calls, " + millis(nanos) + (calls > 0 ? ", " + (nanos / calls / 1000) + "us avg" : ""));
+		}
+		lines.add(" failed circle solves: " + CircleSolver.failedSolves.get());
+		lines.add(" trees: " + total.getCount() + " (" + outcomes(total) + ")");
+
+		lines.add("Biomes by placement time:");
+		for(Map.Entry<String, Tally> entry : byTime(biomes).subList(0, Math.min(limit, biomes.size()))) {
+			lines.add(" " + entry.getKey() + ": " + millis(entry.getValue().getNanos()) + " (" + outcomes(entry.getValue()) + ")");
+		}
+
+		lines.add("Species by placement time:");
+		for(Map.Entry<String, Tally> entry : byTime(species).subList(0, Math.min(limit, species.size()))) {
+			lines.add(" " + entry.getKey() + ": " + millis(entry.getValue().getNanos()) + " (" + outcomes(entry.getValue()) + ")");
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Writes all of the metrics to a CSV file
+	 */
+	public static void export(File file) throws IOException {
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			out.println("section,name,calls,nanos");
+			for(Stage stage : Stage.values()) {
+				out.println("stage," + stage.name().toLowerCase() + "," + stageCalls[stage.ordinal()].sum() + "," + stageNanos[stage.ordinal()].sum());
+			}
+			out.println("stage,failed_solves," + CircleSolver.failedSolves.get() + ",0");
+			out.println();
+
+			StringBuilder header = new StringBuilder("section,name,nanos");
+			for(EnumGeneratorResult result : EnumGeneratorResult.values()) {
+				header.append(',').append(result.name().toLowerCase());
+			}
+			out.println(header);
+			exportTally(out, "total", "all", total);
+			for(Map.Entry<String, Tally> entry : byTime(biomes)) {
+				exportTally(out, "biome", entry.getKey(), entry.getValue());
+			}
+			for(Map.Entry<String, Tally> entry : byTime(species)) {
+				exportTally(out, "species", entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	private static void exportTally(PrintWriter out, String section, String name, Tally tally) {
+		StringBuilder line = new StringBuilder(section).append(',').append(name).append(',').append(tally.getNanos());
+		for(EnumGeneratorResult result : EnumGeneratorResult.values()) {
+			line.append(',').append(tally.getCount(result));
+		}
+		out.println(line);
+	}
+
+}
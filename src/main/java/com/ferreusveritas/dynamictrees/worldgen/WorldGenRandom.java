@@ -0,0 +1,99 @@
+package com.ferreusveritas.dynamictrees.worldgen;
+
+import java.util.Random;
+
+/**
+ * A counter based random number generator for tree worldgen.  Every stream is derived purely from the world
+ * seed, the chunk, the index of the circle within the chunk and what the numbers are being used for.  The
+ * trees of a chunk come out the same no matter which order chunks are generated in or which thread they're
+ * generated on and no two uses of random numbers can disturb one another.
+ *
+ * An instance must only be used by one thread at a time.  Use {@link #split} to hand a stream to another.
+ *
+ * @author ferreusveritas
+ */
+public class WorldGenRandom extends Random {
+
+	private static final long serialVersionUID = 3106420874316263498L;
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** The things that random numbers are used for during tree worldgen */
+	public enum Purpose {
+		CIRCLES,//Solving the circles of a chunk
+		SELECTION,//Picking the species and deciding if a tree is placed
+		SHAPE,//Picking the JoCode and it's rotation
+		GROWTH,//Aging and rotting the tree after it's placed
+		DECORATION,//Fruit, vines, podzol and undergrowth
+		TERRAIN//Anything placed in the chunk that isn't a tree
+	}
+
+	private final long key;
+	private long counter = 0;
+
+	private WorldGenRandom(long key) {
+		super(0);
+		this.key = key;
+	}
+
+	/**
+	 * SplitMix64 finalizer.  Turns a counter into well distributed bits.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @param seed The world seed
+	 * @return The root stream of a chunk.  Nothing should be drawn from it directly.
+	 */
+	public static WorldGenRandom forChunk(long seed, int chunkX, int chunkZ) {
+		return new WorldGenRandom(mix(mix(seed + GOLDEN_GAMMA) ^ ((long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL))));
+	}
+
+	/**
+	 * @param seed The world seed
+	 * @return The stream for a single block position
+	 */
+	public static WorldGenRandom forPos(long seed, int x, int z) {
+		return forChunk(seed, x, z).split(0, Purpose.TERRAIN);
+	}
+
+	/**
+	 * Derives an independent stream.  Splitting always gives the same stream for the same arguments no matter
+	 * how much has been drawn from this one.
+	 *
+	 * @param index Usually the index of the circle the stream is for
+	 * @param purpose What the stream is used for
+	 */
+	public WorldGenRandom split(int index, Purpose purpose) {
+		return new WorldGenRandom(mix(key ^ mix(((long) index << 8 | purpose.ordinal()) * GOLDEN_GAMMA)));
+	}
+
+	/**
+	 * Splits a stream off for the purpose when the random is a {@link WorldGenRandom}.  Any other random number
+	 * generator is handed back as is.
+	 */
+	public static Random split(Random random, Purpose purpose) {
+		return random instanceof WorldGenRandom ? ((WorldGenRandom) random).split(0, purpose) : random;
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (mix(key + (++counter) * GOLDEN_GAMMA) >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		return mix(key + (++counter) * GOLDEN_GAMMA);
+	}
+
+	/**
+	 * The stream is fixed by how it was derived so reseeding is ignored
+	 */
+	@Override
+	public synchronized void setSeed(long seed) {}
+
+}